@@ -24,25 +24,30 @@
 
 package net.fabricmc.loom.inject;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.BiFunction;
-import java.util.function.Predicate;
 
 import cpw.mods.modlauncher.api.INameMappingService;
 
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
 import net.fabricmc.mapping.tree.TinyMappingFactory;
 import net.fabricmc.mapping.tree.TinyTree;
 
 public class YarnNamingService implements INameMappingService {
 	private static final String PATH_TO_MAPPINGS = "fabric.yarnWithSrg.path";
-	private TinyTree mappings = null;
+	private static final String PATH_TO_NAMES = "fabric.yarnWithSrg.names.path";
+	private volatile Names names = null;
 
 	@Override
 	public String mappingName() {
@@ -64,64 +69,103 @@ public class YarnNamingService implements INameMappingService {
 		return this::remap;
 	}
 
-	private TinyTree getMappings() {
-		if (mappings != null) {
-			return mappings;
+	private Names getNames() {
+		Names names = this.names;
+
+		if (names != null) {
+			return names;
+		}
+
+		synchronized (this) {
+			if (this.names == null) {
+				this.names = loadNames();
+			}
+
+			return this.names;
 		}
+	}
 
-		String pathStr = System.getProperty(PATH_TO_MAPPINGS);
-		if (pathStr == null) throw new RuntimeException("Missing system property '" + PATH_TO_MAPPINGS + "'!");
-		Path path = Paths.get(pathStr);
+	private Names loadNames() {
+		String namesPathStr = System.getProperty(PATH_TO_NAMES);
+
+		try {
+			if (namesPathStr != null && Files.exists(Paths.get(namesPathStr))) {
+				// Precomputed by Loom, see SrgNamedWriter.writeNamesTo
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(namesPathStr))))) {
+					return new Names(readNames(in), readNames(in), readNames(in));
+				}
+			}
 
-		try (BufferedReader reader = Files.newBufferedReader(path)) {
-			mappings = TinyMappingFactory.loadWithDetection(reader);
+			String pathStr = System.getProperty(PATH_TO_MAPPINGS);
+			if (pathStr == null) throw new RuntimeException("Missing system property '" + PATH_TO_MAPPINGS + "'!");
+			Path path = Paths.get(pathStr);
+			TinyTree mappings;
+
+			try (BufferedReader reader = Files.newBufferedReader(path)) {
+				mappings = TinyMappingFactory.loadWithDetection(reader);
+			}
+
+			Names names = new Names(new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+			for (ClassDef classDef : mappings.getClasses()) {
+				names.classes.putIfAbsent(classDef.getName("srg"), classDef.getName("named"));
+
+				for (MethodDef method : classDef.getMethods()) {
+					names.methods.putIfAbsent(method.getName("srg"), method.getName("named"));
+				}
+
+				for (FieldDef field : classDef.getFields()) {
+					names.fields.putIfAbsent(field.getName("srg"), field.getName("named"));
+				}
+			}
+
+			return names;
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
+	}
 
-		return mappings;
+	private static Map<String, String> readNames(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		Map<String, String> names = new HashMap<>(size * 2);
+
+		for (int i = 0; i < size; i++) {
+			names.put(in.readUTF(), in.readUTF());
+		}
+
+		return names;
 	}
 
 	private String remap(Domain domain, String name) {
-		TinyTree mappings = getMappings();
+		Names names = getNames();
 
 		switch (domain) {
 		case CLASS:
 			boolean dot = name.contains(".");
-			return find(mappings.getClasses(), def -> maybeReplace(dot, def.getName("srg"), '/', '.').equals(name))
-					.map(def -> maybeReplace(dot, def.getName("named"), '/', '.'))
-					.orElse(name);
+			String named = names.classes.get(maybeReplace(dot, name, '.', '/'));
+			return named != null ? maybeReplace(dot, named, '/', '.') : name;
 		case METHOD:
-			return mappings.getClasses().stream()
-					.flatMap(def -> def.getMethods().stream())
-					.filter(def -> def.getName("srg").equals(name))
-					.findAny()
-					.map(def -> def.getName("named"))
-					.orElse(name);
+			return names.methods.getOrDefault(name, name);
 		case FIELD:
-			return mappings.getClasses().stream()
-					.flatMap(def -> def.getFields().stream())
-					.filter(def -> def.getName("srg").equals(name))
-					.findAny()
-					.map(def -> def.getName("named"))
-					.orElse(name);
+			return names.fields.getOrDefault(name, name);
 		default:
 			return name;
 		}
 	}
 
-	// From CollectionUtil
-	private static <E> Optional<E> find(Iterable<? extends E> collection, Predicate<? super E> filter) {
-		for (E e : collection) {
-			if (filter.test(e)) {
-				return Optional.of(e);
-			}
-		}
-
-		return Optional.empty();
-	}
-
 	private static String maybeReplace(boolean run, String s, char from, char to) {
 		return run ? s.replace(from, to) : s;
 	}
+
+	private static final class Names {
+		final Map<String, String> classes;
+		final Map<String, String> methods;
+		final Map<String, String> fields;
+
+		Names(Map<String, String> classes, Map<String, String> methods, Map<String, String> fields) {
+			this.classes = classes;
+			this.methods = methods;
+			this.fields = fields;
+		}
+	}
 }
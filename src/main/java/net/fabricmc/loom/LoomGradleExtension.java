@@ -87,6 +87,12 @@ public class LoomGradleExtension {
 	public boolean shareCaches = false;
 	public List<String> mixinConfigs = new ArrayList<>(); // FORGE: Passed to Minecraft
 	public boolean useFabricMixin = true; // FORGE: Use Fabric Mixin for better refmap resolutions
+	public boolean streamForgePatches = false; // FORGE: Patch, access transform and remap Minecraft in memory, only writing the final jars
+	public boolean lowMemoryMinecraftRemap = false; // Re-read the Minecraft jar for each remap pass instead of holding every class in memory
+	public boolean incrementalGenSources = false; // Only decompile the classes that changed since the last genSources, patching the existing sources jar and line map
+	public boolean cacheDecompiledClasses = false; // Reuse decompiled classes from a cache in the Gradle user home shared by every project
+	public boolean cacheRemappedMods = false; // Reuse remapped mods from a cache in the Gradle user home shared by every project, keyed by the mod, the mappings and the remap classpath
+	public int forkedDecompilerShards = 1; // Split the jar by package and decompile the parts in this many FernFlower JVMs at once
 
 	private final ConfigurableFileCollection unmappedMods;
 	private final ConfigurableFileCollection log4jConfigs;
@@ -41,6 +41,7 @@ import net.fabricmc.loom.configuration.ide.IdeConfiguration;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsCache;
 import net.fabricmc.loom.decompilers.DecompilerConfiguration;
 import net.fabricmc.loom.task.LoomTasks;
+import net.fabricmc.loom.util.ThreadingUtils;
 
 public class LoomGradlePlugin implements Plugin<Project> {
 	public static boolean refreshDeps;
@@ -64,6 +65,8 @@ public class LoomGradlePlugin implements Plugin<Project> {
 			project.getLogger().lifecycle("Refresh dependencies is in use, loom will be significantly slower.");
 		}
 
+		ThreadingUtils.configure(project);
+
 		// Apply default plugins
 		project.apply(ImmutableMap.of("plugin", "java"));
 		project.apply(ImmutableMap.of("plugin", "eclipse"));
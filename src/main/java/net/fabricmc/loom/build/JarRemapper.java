@@ -24,29 +24,47 @@
 
 package net.fabricmc.loom.build;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import com.google.common.base.Preconditions;
 import dev.architectury.tinyremapper.IMappingProvider;
 import dev.architectury.tinyremapper.InputTag;
 import dev.architectury.tinyremapper.OutputConsumerPath;
 import dev.architectury.tinyremapper.TinyRemapper;
+import org.apache.commons.io.IOUtils;
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.invocation.Gradle;
 import org.objectweb.asm.commons.Remapper;
 
 import net.fabricmc.loom.util.LoggerFilter;
+import net.fabricmc.loom.util.ParallelJarWriter;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
 import net.fabricmc.stitch.util.Pair;
 
 public class JarRemapper {
+	private static final int MAX_IDLE_REMAPPERS = 2;
+	// Least recently used first
+	private static final List<SharedRemapper> IDLE_REMAPPERS = new ArrayList<>();
+	private static Gradle sharedRemappersBuild;
+
 	private final List<IMappingProvider> mappingProviders = new ArrayList<>();
 	private final Set<Path> classPath = new HashSet<>();
 	private final List<RemapData> remapData = new ArrayList<>();
@@ -68,26 +86,146 @@ public class JarRemapper {
 
 	public void remap(Project project) throws IOException {
 		LoggerFilter.replaceSystemOut();
-		TinyRemapper.Builder remapperBuilder = TinyRemapper.newRemapper();
-		remapperBuilder.logger(project.getLogger()::lifecycle);
-		mappingProviders.forEach(remapperBuilder::withMappings);
 
-		if (remapOptions != null) {
+		Path[] remapClasspath = classPath.stream()
+				.filter(path ->
+						remapData.stream().noneMatch(remapData -> remapData.input.toString().equals(path.toString()))
+				)
+				.toArray(Path[]::new);
+
+		// Custom options may change how the classpath is read, so only remappers built with the defaults are shared
+		if (remapOptions == null || remapOptions.isEmpty()) {
+			SharedRemapper shared = borrowSharedRemapper(project, remapClasspath);
+
+			try {
+				shared.remapper.replaceMappings(new HashSet<>(mappingProviders));
+				remapInputs(project, shared.remapper);
+				shared.remapper.removeInput();
+			} catch (Throwable t) {
+				// Its state is unknown now, so it can't be shared any more
+				shared.remapper.finish();
+				throw t;
+			}
+
+			releaseSharedRemapper(shared);
+		} else {
+			TinyRemapper.Builder remapperBuilder = TinyRemapper.newRemapper();
+			remapperBuilder.logger(project.getLogger()::lifecycle);
+			mappingProviders.forEach(remapperBuilder::withMappings);
+
 			for (Action<TinyRemapper.Builder> remapOption : remapOptions) {
 				remapOption.execute(remapperBuilder);
 			}
+
+			TinyRemapper remapper = remapperBuilder.build();
+			remapper.readClassPathAsync(remapClasspath);
+			remapInputs(project, remapper);
+			remapper.finish();
 		}
 
-		TinyRemapper remapper = remapperBuilder.build();
+		remapData.forEach(RemapData::complete);
+	}
 
-		Path[] remapClasspath = classPath.stream()
-				.filter(path ->
-						remapData.stream().noneMatch(remapData -> remapData.input.toString().equals(path.toString()))
-				)
-				.toArray(Path[]::new);
+	/**
+	 * Borrows a remapper for the given classpath. An idle remapper of the current build that read part of the classpath,
+	 * such as the Minecraft jar, is reused and only reads the files it is missing. A remapper whose classpath has files
+	 * outside the given one is never used, so each remap sees exactly its own classpath. A remapper is only used by one
+	 * remap at a time, concurrent remaps each get their own.
+	 */
+	private static SharedRemapper borrowSharedRemapper(Project project, Path[] classpath) {
+		Map<String, Path> files = new LinkedHashMap<>();
+
+		for (Path path : classpath) {
+			File file = path.toFile();
+			files.put(file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified(), path);
+		}
+
+		SharedRemapper shared = null;
+
+		synchronized (IDLE_REMAPPERS) {
+			Gradle build = project.getGradle();
+
+			while (build.getParent() != null) {
+				build = build.getParent();
+			}
 
-		remapper.readClassPathAsync(remapClasspath);
+			if (sharedRemappersBuild != build) {
+				finishSharedRemappers();
+				sharedRemappersBuild = build;
+				build.buildFinished(result -> {
+					synchronized (IDLE_REMAPPERS) {
+						finishSharedRemappers();
+					}
+				});
+			}
+
+			for (SharedRemapper idle : IDLE_REMAPPERS) {
+				if (files.keySet().containsAll(idle.classpath) && (shared == null || idle.classpath.size() > shared.classpath.size())) {
+					shared = idle;
+				}
+			}
 
+			if (shared != null) {
+				IDLE_REMAPPERS.remove(shared);
+			} else {
+				shared = new SharedRemapper(build, TinyRemapper.newRemapper()
+						.logger(project.getLogger()::lifecycle)
+						.build());
+			}
+		}
+
+		List<Path> missing = new ArrayList<>();
+
+		for (Map.Entry<String, Path> entry : files.entrySet()) {
+			if (shared.classpath.add(entry.getKey())) {
+				missing.add(entry.getValue());
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			project.getLogger().info(":reading remap classpath (" + missing.size() + " of " + classpath.length + " entries)");
+
+			try {
+				shared.remapper.readClassPath(missing.toArray(new Path[0]));
+			} catch (RuntimeException e) {
+				// Its classpath is unknown now, so it can't be shared any more
+				shared.remapper.finish();
+				throw e;
+			}
+		}
+
+		return shared;
+	}
+
+	/**
+	 * Returns a remapper to the idle remappers, finishing the least recently used ones past {@value #MAX_IDLE_REMAPPERS}
+	 * so their parsed classes don't stay in memory for the rest of the build.
+	 */
+	private static void releaseSharedRemapper(SharedRemapper shared) {
+		List<SharedRemapper> evicted = new ArrayList<>();
+
+		synchronized (IDLE_REMAPPERS) {
+			if (shared.build != sharedRemappersBuild) {
+				evicted.add(shared);
+			} else {
+				IDLE_REMAPPERS.add(shared);
+
+				while (IDLE_REMAPPERS.size() > MAX_IDLE_REMAPPERS) {
+					evicted.add(IDLE_REMAPPERS.remove(0));
+				}
+			}
+		}
+
+		evicted.forEach(remapper -> remapper.remapper.finish());
+	}
+
+	private static void finishSharedRemappers() {
+		IDLE_REMAPPERS.forEach(shared -> shared.remapper.finish());
+		IDLE_REMAPPERS.clear();
+		sharedRemappersBuild = null;
+	}
+
+	private void remapInputs(Project project, TinyRemapper remapper) throws IOException {
 		for (RemapData data : remapData) {
 			InputTag tag = remapper.createInputTag();
 			data.tag = tag;
@@ -103,6 +241,13 @@ public class JarRemapper {
 		List<OutputConsumerPath> outputConsumers = new ArrayList<>();
 
 		for (RemapData data : remapData) {
+			if (data.transformed) {
+				project.getLogger().info(":remapper output -> " + data.output.getFileName().toString());
+				data.processAccessWidener(remapper.getRemapper());
+				data.writeTransformed(remapper);
+				continue;
+			}
+
 			OutputConsumerPath outputConsumer;
 			project.getLogger().info(":remapper output -> " + data.output.getFileName().toString());
 
@@ -121,24 +266,43 @@ public class JarRemapper {
 			remapper.apply(outputConsumer, data.tag);
 		}
 
-		remapper.finish();
-
 		for (OutputConsumerPath outputConsumer : outputConsumers) {
 			outputConsumer.close();
 		}
-
-		remapData.forEach(RemapData::complete);
 	}
 
 	public void addOptions(List<Action<TinyRemapper.Builder>> remapOptions) {
 		this.remapOptions = remapOptions;
 	}
 
+	/**
+	 * Edits the non-class entries of a remapped jar before it is written, keyed by their path inside the jar. The
+	 * remapped classes are streamed into the jar as they are applied and never pass through a transformer.
+	 */
+	public interface OutputTransformer {
+		void transform(Map<String, byte[]> entries) throws IOException;
+	}
+
+	private static class SharedRemapper {
+		private final Gradle build;
+		private final TinyRemapper remapper;
+		private final Set<String> classpath = new HashSet<>();
+
+		private SharedRemapper(Gradle build, TinyRemapper remapper) {
+			this.build = build;
+			this.remapper = remapper;
+		}
+	}
+
 	public static class RemapData {
 		public final Path input;
 		public final Path output;
 		BiFunction<RemapData, Remapper, Pair<String, byte[]>> accesWidenerSupplier;
 		BiConsumer<RemapData, Pair<String, byte[]>> onComplete;
+		private final List<OutputTransformer> transformers = new ArrayList<>();
+		private boolean transformed = false;
+		private boolean reproducibleFileOrder = false;
+		private boolean preserveFileTimestamps = true;
 
 		private InputTag tag;
 		private Pair<String, byte[]> accessWidener;
@@ -158,6 +322,90 @@ public class JarRemapper {
 			return this;
 		}
 
+		/**
+		 * Adds a transformer that runs over the non-class entries before the output jar is written. Once any transformer
+		 * is added the jar is written exactly once: the transformed non-class entries first, with the remapped access
+		 * widener in place, then the classes as they are remapped.
+		 */
+		public RemapData transform(OutputTransformer transformer) {
+			this.transformers.add(transformer);
+			this.transformed = true;
+			return this;
+		}
+
+		/**
+		 * Sets how a transformed output jar is written, see {@link org.gradle.api.tasks.bundling.AbstractArchiveTask}.
+		 */
+		public RemapData writeOptions(boolean reproducibleFileOrder, boolean preserveFileTimestamps) {
+			this.reproducibleFileOrder = reproducibleFileOrder;
+			this.preserveFileTimestamps = preserveFileTimestamps;
+			return this;
+		}
+
+		/**
+		 * Writes the output in a single pass. Only the small non-class entries are held in memory for the transformers,
+		 * the remapped classes are deflated on the remapper's threads as they are applied and streamed into the jar.
+		 * Every entry keeps the time of the input entry it came from, entries added by a transformer get the current
+		 * time.
+		 */
+		private void writeTransformed(TinyRemapper remapper) throws IOException {
+			Map<String, byte[]> entries = new LinkedHashMap<>();
+			Map<String, Long> times = new HashMap<>();
+			Remapper classRemapper = remapper.getRemapper();
+
+			try (ZipFile zipFile = new ZipFile(input.toFile())) {
+				Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+
+				while (zipEntries.hasMoreElements()) {
+					ZipEntry entry = zipEntries.nextElement();
+					String name = entry.getName();
+
+					if (entry.isDirectory()) {
+						continue;
+					}
+
+					if (name.endsWith(".class")) {
+						times.put(classRemapper.map(name.substring(0, name.length() - ".class".length())) + ".class", entry.getTime());
+						continue;
+					}
+
+					times.put(name, entry.getTime());
+
+					try (InputStream in = zipFile.getInputStream(entry)) {
+						entries.put(name, IOUtils.toByteArray(in));
+					}
+				}
+			}
+
+			if (accessWidener != null) {
+				Preconditions.checkArgument(entries.containsKey(accessWidener.getLeft()), "Failed to remap access widener");
+				entries.put(accessWidener.getLeft(), accessWidener.getRight());
+			}
+
+			for (OutputTransformer transformer : transformers) {
+				transformer.transform(entries);
+			}
+
+			long now = System.currentTimeMillis();
+			Path tempPath = Files.createTempFile(output.toAbsolutePath().getParent(), output.getFileName().toString(), ".tmp");
+
+			try {
+				try (ParallelJarWriter writer = new ParallelJarWriter(tempPath, null)) {
+					entries.forEach((name, bytes) -> writer.add(name, bytes, times.getOrDefault(name, now)));
+					remapper.apply((name, bytes) -> {
+						String entryName = (name.startsWith("/") ? name.substring(1) : name) + ".class";
+						writer.add(entryName, bytes, times.getOrDefault(entryName, now));
+					}, tag);
+				}
+
+				// Only copies the compressed entries over when the task asks for a reproducible order or constant times
+				ZipReprocessorUtil.reprocessZip(tempPath.toFile(), reproducibleFileOrder, preserveFileTimestamps);
+				ZipReprocessorUtil.moveReplacing(tempPath, output);
+			} finally {
+				Files.deleteIfExists(tempPath);
+			}
+		}
+
 		private void complete() {
 			if (onComplete != null) {
 				onComplete.accept(this, accessWidener);
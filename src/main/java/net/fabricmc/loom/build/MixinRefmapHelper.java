@@ -24,72 +24,57 @@
 
 package net.fabricmc.loom.build;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.zip.ZipEntry;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import com.google.gson.JsonObject;
-import org.zeroturnaround.zip.ZipUtil;
-import org.zeroturnaround.zip.transform.StringZipEntryTransformer;
-import org.zeroturnaround.zip.transform.ZipEntryTransformerEntry;
+import org.jetbrains.annotations.Nullable;
 
 import net.fabricmc.loom.LoomGradlePlugin;
 
 public final class MixinRefmapHelper {
 	private MixinRefmapHelper() { }
 
-	public static boolean addRefmapName(String filename, Path outputPath) {
-		File output = outputPath.toFile();
-		Set<String> mixinFilenames = findMixins(output, true);
+	public static boolean addRefmapName(String filename, Map<String, byte[]> entries) {
+		boolean transformed = false;
 
-		if (mixinFilenames.size() > 0) {
-			return ZipUtil.transformEntries(output, mixinFilenames.stream().map((f) -> new ZipEntryTransformerEntry(f, new StringZipEntryTransformer("UTF-8") {
-				@Override
-				protected String transform(ZipEntry zipEntry, String input) throws IOException {
-					JsonObject json = LoomGradlePlugin.GSON.fromJson(input, JsonObject.class);
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			JsonObject json = readMixinConfig(entry.getKey(), entry.getValue());
 
-					if (!json.has("refmap")) {
-						json.addProperty("refmap", filename);
-					}
-
-					return LoomGradlePlugin.GSON.toJson(json);
-				}
-			})).toArray(ZipEntryTransformerEntry[]::new));
-		} else {
-			return false;
+			if (json != null && !json.has("refmap")) {
+				json.addProperty("refmap", filename);
+				entry.setValue(LoomGradlePlugin.GSON.toJson(json).getBytes(StandardCharsets.UTF_8));
+				transformed = true;
+			}
 		}
+
+		return transformed;
 	}
 
-	private static Set<String> findMixins(File output, boolean onlyWithoutRefmap) {
-		// first, identify all of the mixin files
-		Set<String> mixinFilename = new HashSet<>();
+	@Nullable
+	private static JsonObject readMixinConfig(String name, byte[] bytes) {
 		// TODO: this is a lovely hack
-		ZipUtil.iterate(output, (stream, entry) -> {
-			if (!entry.isDirectory() && entry.getName().endsWith(".json") && !entry.getName().contains("/") && !entry.getName().contains("\\")) {
-				// JSON file in root directory
-				try (InputStreamReader inputStreamReader = new InputStreamReader(stream)) {
-					JsonObject json = LoomGradlePlugin.GSON.fromJson(inputStreamReader, JsonObject.class);
+		if (!name.endsWith(".json") || name.contains("/") || name.contains("\\")) {
+			return null;
+		}
+
+		// JSON file in root directory
+		try {
+			JsonObject json = LoomGradlePlugin.GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), JsonObject.class);
 
-					if (json != null) {
-						boolean hasMixins = json.has("mixins") && json.get("mixins").isJsonArray();
-						boolean hasClient = json.has("client") && json.get("client").isJsonArray();
-						boolean hasServer = json.has("server") && json.get("server").isJsonArray();
+			if (json != null) {
+				boolean hasMixins = json.has("mixins") && json.get("mixins").isJsonArray();
+				boolean hasClient = json.has("client") && json.get("client").isJsonArray();
+				boolean hasServer = json.has("server") && json.get("server").isJsonArray();
 
-						if (json.has("package") && (hasMixins || hasClient || hasServer)) {
-							if (!onlyWithoutRefmap || !json.has("refmap") || !json.has("minVersion")) {
-								mixinFilename.add(entry.getName());
-							}
-						}
-					}
-				} catch (Exception ignored) {
-					// ...
+				if (json.has("package") && (hasMixins || hasClient || hasServer)) {
+					return json;
 				}
 			}
-		});
-		return mixinFilename;
+		} catch (Exception ignored) {
+			// ...
+		}
+
+		return null;
 	}
 }
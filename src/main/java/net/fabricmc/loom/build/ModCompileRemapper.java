@@ -64,13 +64,14 @@ public class ModCompileRemapper {
 		final File modStore = extension.getRemappedModCache();
 		final RemapData remapData = new RemapData(mappingsSuffix, modStore);
 
+		// Collect the mods of every configuration first, so they are all remapped in one pass over a single classpath
+		List<ModDependencyInfo> modDependencies = new ArrayList<>();
+
 		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
 			Configuration sourceConfig = project.getConfigurations().getByName(entry.getSourceConfiguration());
 			Configuration remappedConfig = project.getConfigurations().getByName(entry.getRemappedConfiguration());
 			Configuration regularConfig = project.getConfigurations().getByName(entry.getTargetConfiguration(project.getConfigurations()));
 
-			List<ModDependencyInfo> modDependencies = new ArrayList<>();
-
 			for (ResolvedArtifact artifact : sourceConfig.getResolvedConfiguration().getResolvedArtifacts()) {
 				// TODO: This collection doesn't appear to include FileCollection dependencies
 				// Might have to go based on the dependencies, rather than their resolved form?
@@ -92,9 +93,6 @@ public class ModCompileRemapper {
 
 				modDependencies.add(info);
 
-				String remappedLog = group + ":" + name + ":" + version + (artifact.getClassifier() == null ? "" : ":" + artifact.getClassifier()) + " (" + mappingsSuffix + ")" + (info.requiresRemapping() ? " requires remapping" : " already remapped in " + info.getRemappedOutput().getAbsolutePath());
-				project.getLogger().info(":providing " + remappedLog);
-
 				File remappedSources = info.getRemappedOutput("sources");
 
 				if ((!remappedSources.exists() || refreshDeps) && !OperatingSystem.isCIBuild()) {
@@ -105,20 +103,20 @@ public class ModCompileRemapper {
 					}
 				}
 			}
+		}
 
-			try {
-				ModProcessor.processMods(project, modDependencies);
-			} catch (IOException e) {
-				// Failed to remap, lets clean up to ensure we try again next time
-				modDependencies.forEach(info -> info.getRemappedOutput().delete());
-				throw new RuntimeException("Failed to remap mods", e);
-			}
+		try {
+			ModProcessor.processMods(project, modDependencies);
+		} catch (IOException e) {
+			// Failed to remap, lets clean up to ensure we try again next time
+			modDependencies.forEach(info -> info.getRemappedOutput().delete());
+			throw new RuntimeException("Failed to remap mods", e);
+		}
 
-			// Add all of the remapped mods onto the config
-			for (ModDependencyInfo info : modDependencies) {
-				project.getLogger().info(":adding " + info.toString() + " into " + info.targetConfig.getName());
-				project.getDependencies().add(info.targetConfig.getName(), info.getRemappedNotation());
-			}
+		// Add all of the remapped mods onto their configs
+		for (ModDependencyInfo info : modDependencies) {
+			project.getLogger().info(":adding " + info.toString() + " into " + info.targetConfig.getName());
+			project.getDependencies().add(info.targetConfig.getName(), info.getRemappedNotation());
 		}
 	}
 
@@ -26,6 +26,8 @@ package net.fabricmc.loom.configuration;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -54,6 +56,7 @@ public abstract class DependencyProvider {
 	private LoomDependencyManager dependencyManager;
 	private final Project project;
 	private final LoomGradleExtension extension;
+	private volatile List<Runnable> modelChanges;
 
 	public DependencyProvider(Project project) {
 		this.project = project;
@@ -64,12 +67,81 @@ public abstract class DependencyProvider {
 
 	public abstract String getTargetConfig();
 
+	/**
+	 * @return the configurations this provider adds dependencies to, the providers targeting them run after it
+	 */
+	public Set<String> getProvidedConfigs() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * @return the providers whose results this provider reads, it runs after any of them that are registered
+	 */
+	public Set<Class<? extends DependencyProvider>> getRequiredProviders() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Whether {@link #provide} may run on a worker thread at the same time as other providers. It may then not resolve
+	 * anything with Gradle, other than the files of its own dependency when {@link #resolvesDependencyFiles()} is set,
+	 * and its changes to the Gradle model are only applied on the configuring thread once it has finished, see
+	 * {@link #addDependency}.
+	 */
+	public boolean canProvideInParallel() {
+		return false;
+	}
+
+	/**
+	 * Whether {@link #provide} uses the files of its dependency, which are then resolved on the configuring thread
+	 * before it runs in parallel.
+	 */
+	public boolean resolvesDependencyFiles() {
+		return false;
+	}
+
+	/**
+	 * Adds a dependency to the target configuration. While the provider runs on a worker thread the dependency is
+	 * only added once it has finished, see {@link #changeModel}, and {@code null} is returned.
+	 */
 	public Dependency addDependency(Object object, String target) {
-		if (object instanceof File) {
-			object = project.files(object);
+		if (modelChanges != null) {
+			changeModel(() -> addDependency(object, target));
+			return null;
+		}
+
+		return project.getDependencies().add(target, object instanceof File ? project.files(object) : object);
+	}
+
+	/**
+	 * Changes the Gradle model, right away on the configuring thread. While {@link #provide} runs on a worker thread
+	 * the change is held back and applied on the configuring thread once the provider has finished, before any
+	 * provider that waits on it starts.
+	 */
+	public void changeModel(Runnable change) {
+		List<Runnable> changes = modelChanges;
+
+		if (changes != null) {
+			changes.add(change);
+		} else {
+			change.run();
 		}
+	}
+
+	/**
+	 * Holds back changes to the Gradle model until {@link #applyModelChanges()}, while {@link #provide} runs on a
+	 * worker thread.
+	 */
+	void deferModelChanges() {
+		modelChanges = Collections.synchronizedList(new ArrayList<>());
+	}
 
-		return project.getDependencies().add(target, object);
+	void applyModelChanges() {
+		List<Runnable> changes = modelChanges;
+		modelChanges = null;
+
+		if (changes != null) {
+			changes.forEach(Runnable::run);
+		}
 	}
 
 	public void register(LoomDependencyManager dependencyManager) {
@@ -98,6 +170,7 @@ public abstract class DependencyProvider {
 		final Configuration sourceConfiguration;
 
 		private String resolvedVersion = null;
+		private Set<File> resolved = null;
 
 		public static DependencyInfo create(Project project, Dependency dependency, Configuration sourceConfiguration) {
 			if (dependency instanceof SelfResolvingDependency) {
@@ -138,11 +211,17 @@ public abstract class DependencyProvider {
 		}
 
 		public Set<File> resolve() {
+			if (resolved != null) {
+				return resolved;
+			}
+
 			if (dependency instanceof SelfResolvingDependency) {
-				return ((SelfResolvingDependency) dependency).resolve();
+				resolved = ((SelfResolvingDependency) dependency).resolve();
+			} else {
+				resolved = sourceConfiguration.files(dependency);
 			}
 
-			return sourceConfiguration.files(dependency);
+			return resolved;
 		}
 
 		public Optional<File> resolveFile() {
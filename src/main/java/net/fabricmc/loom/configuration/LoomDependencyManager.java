@@ -26,9 +26,16 @@ package net.fabricmc.loom.configuration;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.google.gson.JsonObject;
 import org.gradle.api.Project;
@@ -45,17 +52,9 @@ import net.fabricmc.loom.configuration.mods.ModProcessor;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProvider;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.SourceRemapper;
+import net.fabricmc.loom.util.ThreadingUtils;
 
 public class LoomDependencyManager {
-	private static class ProviderList {
-		private final String key;
-		private final List<DependencyProvider> providers = new ArrayList<>();
-
-		ProviderList(String key) {
-			this.key = key;
-		}
-	}
-
 	private final List<DependencyProvider> dependencyProviderList = new ArrayList<>();
 
 	public <T extends DependencyProvider> T addProvider(T provider) {
@@ -83,21 +82,15 @@ public class LoomDependencyManager {
 	}
 
 	public void handleDependencies(Project project) {
-		List<Runnable> afterTasks = new ArrayList<>();
+		Map<DependencyProvider, List<Runnable>> afterTasks = new HashMap<>();
 
 		MappingsProvider mappingsProvider = null;
 
 		project.getLogger().info(":setting up loom dependencies");
 		LoomGradleExtension extension = project.getExtensions().getByType(LoomGradleExtension.class);
-		Map<String, ProviderList> providerListMap = new HashMap<>();
-		List<ProviderList> targetProviders = new ArrayList<>();
 
 		for (DependencyProvider provider : dependencyProviderList) {
-			providerListMap.computeIfAbsent(provider.getTargetConfig(), (k) -> {
-				ProviderList list = new ProviderList(k);
-				targetProviders.add(list);
-				return list;
-			}).providers.add(provider);
+			afterTasks.put(provider, Collections.synchronizedList(new ArrayList<>()));
 
 			if (provider instanceof MappingsProvider) {
 				mappingsProvider = (MappingsProvider) provider;
@@ -108,33 +101,7 @@ public class LoomDependencyManager {
 			throw new RuntimeException("Could not find MappingsProvider instance!");
 		}
 
-		for (ProviderList list : targetProviders) {
-			Configuration configuration = project.getConfigurations().getByName(list.key);
-			DependencySet dependencies = configuration.getDependencies();
-
-			if (dependencies.isEmpty()) {
-				throw new IllegalArgumentException(String.format("No '%s' dependency was specified!", list.key));
-			}
-
-			if (dependencies.size() > 1) {
-				throw new IllegalArgumentException(String.format("Only one '%s' dependency should be specified, but %d were!",
-												list.key,
-												dependencies.size())
-				);
-			}
-
-			for (Dependency dependency : dependencies) {
-				for (DependencyProvider provider : list.providers) {
-					DependencyProvider.DependencyInfo info = DependencyInfo.create(project, dependency, configuration);
-
-					try {
-						provider.provide(info, afterTasks::add);
-					} catch (Exception e) {
-						throw new RuntimeException("Failed to provide " + dependency.getGroup() + ":" + dependency.getName() + ":" + dependency.getVersion() + " : " + e.toString() + "\n\tEnsure minecraft is not open and try running with --refresh-dependencies. Use --stacktrace to see the full stacktrace.", e);
-					}
-				}
-			}
-		}
+		provideAll(project, afterTasks);
 
 		SourceRemapper sourceRemapper = new SourceRemapper(project, true);
 		String platformSuffix = extension.isForge() ? "_forge" : "";
@@ -169,9 +136,143 @@ public class LoomDependencyManager {
 
 		sourceRemapper.remapAll();
 
-		for (Runnable runnable : afterTasks) {
-			runnable.run();
+		// In registration order, whatever order the providers ran in
+		for (DependencyProvider provider : dependencyProviderList) {
+			for (Runnable runnable : afterTasks.get(provider)) {
+				runnable.run();
+			}
+		}
+	}
+
+	/**
+	 * Runs the providers as a graph: a provider starts once the providers filling its configuration and the ones it
+	 * requires are done. Providers that can run in parallel do so on the shared executor, their dependency is resolved
+	 * on the configuring thread before they start and their changes to the Gradle model are applied on the configuring
+	 * thread once they finish. The others run on the configuring thread.
+	 */
+	private void provideAll(Project project, Map<DependencyProvider, List<Runnable>> afterTasks) {
+		Map<DependencyProvider, Set<DependencyProvider>> prerequisites = new HashMap<>();
+
+		for (DependencyProvider provider : dependencyProviderList) {
+			Set<DependencyProvider> required = new HashSet<>();
+
+			for (DependencyProvider other : dependencyProviderList) {
+				if (other == provider) {
+					continue;
+				}
+
+				if (other.getProvidedConfigs().contains(provider.getTargetConfig())
+						|| provider.getRequiredProviders().stream().anyMatch(clazz -> clazz.isInstance(other))) {
+					required.add(other);
+				}
+			}
+
+			prerequisites.put(provider, required);
+		}
+
+		Set<DependencyProvider> done = new HashSet<>();
+		Map<DependencyProvider, CompletableFuture<Void>> running = new LinkedHashMap<>();
+
+		while (done.size() < dependencyProviderList.size()) {
+			boolean started = false;
+
+			for (DependencyProvider provider : dependencyProviderList) {
+				if (done.contains(provider) || running.containsKey(provider) || !done.containsAll(prerequisites.get(provider))) {
+					continue;
+				}
+
+				DependencyInfo info = createDependencyInfo(project, provider);
+				started = true;
+
+				if (provider.canProvideInParallel()) {
+					provider.deferModelChanges();
+					running.put(provider, ThreadingUtils.async(() -> provide(provider, info, afterTasks.get(provider))));
+				} else {
+					provide(provider, info, afterTasks.get(provider));
+					done.add(provider);
+				}
+			}
+
+			if (started) {
+				continue;
+			}
+
+			if (running.isEmpty()) {
+				List<DependencyProvider> remaining = new ArrayList<>(dependencyProviderList);
+				remaining.removeAll(done);
+				throw new IllegalStateException("Dependency providers are waiting on each other: " + remaining);
+			}
+
+			try {
+				CompletableFuture.anyOf(running.values().toArray(new CompletableFuture[0])).join();
+			} catch (CompletionException ignored) {
+				// Rethrown below for the provider that failed
+			}
+
+			Iterator<Map.Entry<DependencyProvider, CompletableFuture<Void>>> iterator = running.entrySet().iterator();
+
+			while (iterator.hasNext()) {
+				Map.Entry<DependencyProvider, CompletableFuture<Void>> entry = iterator.next();
+
+				if (entry.getValue().isDone()) {
+					try {
+						entry.getValue().join();
+					} catch (CompletionException e) {
+						if (e.getCause() instanceof RuntimeException) {
+							throw (RuntimeException) e.getCause();
+						}
+
+						throw e;
+					}
+
+					entry.getKey().applyModelChanges();
+					done.add(entry.getKey());
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private static DependencyInfo createDependencyInfo(Project project, DependencyProvider provider) {
+		Configuration configuration = project.getConfigurations().getByName(provider.getTargetConfig());
+		DependencySet dependencies = configuration.getDependencies();
+
+		if (dependencies.isEmpty()) {
+			throw new IllegalArgumentException(String.format("No '%s' dependency was specified!", provider.getTargetConfig()));
 		}
+
+		if (dependencies.size() > 1) {
+			throw new IllegalArgumentException(String.format("Only one '%s' dependency should be specified, but %d were!",
+											provider.getTargetConfig(),
+											dependencies.size())
+			);
+		}
+
+		Dependency dependency = dependencies.iterator().next();
+		DependencyInfo info = DependencyInfo.create(project, dependency, configuration);
+
+		// Gradle doesn't manage the executor's threads, so nothing may be resolved from them
+		if (provider.canProvideInParallel() && provider.resolvesDependencyFiles()) {
+			try {
+				info.resolve();
+			} catch (Exception e) {
+				throw failedToProvide(dependency, e);
+			}
+		}
+
+		return info;
+	}
+
+	private static void provide(DependencyProvider provider, DependencyInfo info, List<Runnable> afterTasks) {
+		try {
+			provider.provide(info, afterTasks::add);
+		} catch (Exception e) {
+			throw failedToProvide(info.getDependency(), e);
+		}
+	}
+
+	private static RuntimeException failedToProvide(Dependency dependency, Exception e) {
+		return new RuntimeException("Failed to provide " + dependency.getGroup() + ":" + dependency.getName() + ":" + dependency.getVersion() + " : " + e.toString() + "\n\tEnsure minecraft is not open and try running with --refresh-dependencies. Use --stacktrace to see the full stacktrace.", e);
 	}
 
 	private static void handleInstallerJson(JsonObject jsonObject, Project project) {
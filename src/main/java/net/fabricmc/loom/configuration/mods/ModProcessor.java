@@ -26,36 +26,39 @@ package net.fabricmc.loom.configuration.mods;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import com.google.common.base.Stopwatch;
 import com.google.gson.JsonObject;
 import dev.architectury.tinyremapper.InputTag;
-import dev.architectury.tinyremapper.OutputConsumerPath;
 import dev.architectury.tinyremapper.TinyRemapper;
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.Project;
 import org.objectweb.asm.commons.Remapper;
-import org.zeroturnaround.zip.ZipUtil;
-import org.zeroturnaround.zip.transform.StringZipEntryTransformer;
-import org.zeroturnaround.zip.transform.ZipEntryTransformerEntry;
 
 import net.fabricmc.accesswidener.AccessWidener;
 import net.fabricmc.accesswidener.AccessWidenerReader;
@@ -64,26 +67,46 @@ import net.fabricmc.accesswidener.AccessWidenerWriter;
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.LoomGradlePlugin;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
+import net.fabricmc.loom.configuration.processors.dependency.ModApiIndex;
 import net.fabricmc.loom.configuration.processors.dependency.ModDependencyInfo;
+import net.fabricmc.loom.configuration.processors.dependency.ModRemapManifest;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftMappedProvider;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.LoggerFilter;
+import net.fabricmc.loom.util.ParallelJarWriter;
+import net.fabricmc.loom.util.ThreadingUtils;
 import net.fabricmc.loom.util.TinyRemapperMappingsHelper;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
 import net.fabricmc.loom.util.srg.AtRemapper;
 import net.fabricmc.loom.util.srg.CoreModClassRemapper;
 import net.fabricmc.mapping.tree.TinyTree;
 
 public class ModProcessor {
 	public static void processMods(Project project, List<ModDependencyInfo> processList) throws IOException {
+		if (processList.isEmpty()) {
+			return;
+		}
+
+		assignRemapManifests(project, processList);
+
+		for (ModDependencyInfo info : processList) {
+			if (!info.requiresRemapping() && !info.getRemapManifestFile().exists()) {
+				// Up to date from before manifests were recorded, adopt the current state
+				info.saveRemapManifest();
+			}
+		}
+
 		if (processList.stream().noneMatch(ModDependencyInfo::requiresRemapping)) {
 			return;
 		}
 
 		ArrayList<ModDependencyInfo> remapList = new ArrayList<>();
+		Set<File> remapOutputs = new HashSet<>();
 
 		for (ModDependencyInfo info : processList) {
-			if (info.requiresRemapping()) {
+			// A mod in several configurations shares one remapped output, so only remap it once
+			if (info.requiresRemapping() && remapOutputs.add(info.getRemappedOutput())) {
 				if (info.getRemappedOutput().exists()) {
 					info.getRemappedOutput().delete();
 				}
@@ -92,7 +115,20 @@ public class ModProcessor {
 			}
 		}
 
-		remapJars(project, processList);
+		LoomGradleExtension extension = project.getExtensions().getByType(LoomGradleExtension.class);
+		RemappedModCache cache = extension.cacheRemappedMods && !LoomGradlePlugin.refreshDeps ? new RemappedModCache(project) : null;
+
+		if (cache != null) {
+			int total = remapList.size();
+			remapList = new ArrayList<>(cache.restore(remapList));
+			project.getLogger().lifecycle(":found " + (total - remapList.size()) + " of " + total + " mods in the remapped mod cache");
+
+			if (remapList.isEmpty()) {
+				return;
+			}
+		}
+
+		remapJars(project, remapList);
 
 		for (ModDependencyInfo info : processList) {
 			if (!info.getRemappedOutput().exists()) {
@@ -100,22 +136,80 @@ public class ModProcessor {
 			}
 		}
 
-		for (ModDependencyInfo info : remapList) {
-			stripNestedJars(info.getRemappedOutput());
+		if (cache != null) {
+			cache.store(remapList);
 		}
 	}
 
-	private static void stripNestedJars(File file) {
-		if (!ZipUtil.containsEntry(file, "fabric.mod.json")) return;
-		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
-		ZipUtil.transformEntries(file, new ZipEntryTransformerEntry[] {(new ZipEntryTransformerEntry("fabric.mod.json", new StringZipEntryTransformer() {
-			@Override
-			protected String transform(ZipEntry zipEntry, String input) {
-				JsonObject json = LoomGradlePlugin.GSON.fromJson(input, JsonObject.class);
-				json.remove("jars");
-				return LoomGradlePlugin.GSON.toJson(json);
+	/**
+	 * Describes the current inputs of each mod: its own contents, the mappings, Minecraft and the loader dependencies,
+	 * and the API of the classes it references from the other mods. Only mods whose manifest differs from the one
+	 * recorded when they were last remapped are redone.
+	 */
+	private static void assignRemapManifests(Project project, List<ModDependencyInfo> processList) {
+		LoomGradleExtension extension = project.getExtensions().getByType(LoomGradleExtension.class);
+		MinecraftMappedProvider mappedProvider = extension.getMinecraftMappedProvider();
+
+		List<File> libraries = new ArrayList<>();
+		libraries.add(extension.isForge() ? mappedProvider.getSrgJar() : mappedProvider.getIntermediaryJar());
+		libraries.addAll(project.getConfigurations().getByName(Constants.Configurations.LOADER_DEPENDENCIES).getFiles());
+
+		Set<File> modSet = new LinkedHashSet<>();
+
+		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
+			modSet.addAll(project.getConfigurations().getByName(entry.getSourceConfiguration()).getFiles());
+		}
+
+		for (ModDependencyInfo info : processList) {
+			modSet.add(info.getInputFile());
+		}
+
+		List<File> mods = new ArrayList<>(modSet);
+		List<String> libraryHashes = ThreadingUtils.get(libraries, ModRemapManifest::hashContents);
+		ModApiIndex.cleanup(extension.getUserCache());
+		List<String> modHashes = ThreadingUtils.get(mods, ModRemapManifest::hashContents);
+		List<ModApiIndex> modIndexes = ThreadingUtils.get(mods, mod -> ModApiIndex.get(mod, modHashes.get(mods.indexOf(mod)), extension.getUserCache()));
+
+		for (ModDependencyInfo info : processList) {
+			int modIndex = mods.indexOf(info.getInputFile());
+			List<ModApiIndex> others = new ArrayList<>(modIndexes);
+			others.remove(modIndex);
+
+			List<String> classpath = new ArrayList<>(libraryHashes);
+			classpath.add(ModApiIndex.hashReferencedApi(modIndexes.get(modIndex), others));
+
+			info.setRemapManifest(new ModRemapManifest(modHashes.get(modIndex), info.remapData.mappingsSuffix, ModRemapManifest.hashClasspath(classpath)));
+			project.getLogger().info(":providing " + info + (info.requiresRemapping() ? " requires remapping" : " already remapped in " + info.getRemappedOutput().getAbsolutePath()));
+		}
+	}
+
+	/**
+	 * Rewrites the metadata of a mod: its access widener is remapped and the nested jars are removed from its
+	 * fabric.mod.json.
+	 *
+	 * @param entries the non-class entries of the mod by name, which are edited in place
+	 */
+	private static void remapMetadata(Map<String, byte[]> entries, Remapper remapper) {
+		byte[] modJson = entries.get("fabric.mod.json");
+
+		if (modJson == null) {
+			return;
+		}
+
+		JsonObject json = LoomGradlePlugin.GSON.fromJson(new String(modJson, StandardCharsets.UTF_8), JsonObject.class);
+
+		if (json.has("accessWidener")) {
+			String accessWidener = json.get("accessWidener").getAsString();
+			byte[] input = entries.get(accessWidener);
+
+			if (input != null) {
+				entries.put(accessWidener, remapAccessWidener(input, remapper));
 			}
-		}))});
+		}
+
+		// Strip out all contained jar info as we dont want loader to try and load the jars contained in dev.
+		json.remove("jars");
+		entries.put("fabric.mod.json", LoomGradlePlugin.GSON.toJson(json).getBytes(StandardCharsets.UTF_8));
 	}
 
 	private static byte[] remapAccessWidener(byte[] input, Remapper remapper) {
@@ -137,7 +231,7 @@ public class ModProcessor {
 		}
 	}
 
-	private static void remapJars(Project project, List<ModDependencyInfo> processList) throws IOException {
+	private static void remapJars(Project project, List<ModDependencyInfo> remapList) throws IOException {
 		LoomGradleExtension extension = project.getExtensions().getByType(LoomGradleExtension.class);
 		String fromM = extension.isForge() ? "srg" : "intermediary";
 		String toM = "named";
@@ -149,8 +243,6 @@ public class ModProcessor {
 		Path[] mcDeps = project.getConfigurations().getByName(Constants.Configurations.LOADER_DEPENDENCIES).getFiles()
 				.stream().map(File::toPath).toArray(Path[]::new);
 
-		List<ModDependencyInfo> remapList = processList.stream().filter(ModDependencyInfo::requiresRemapping).collect(Collectors.toList());
-
 		Stopwatch stopwatch = Stopwatch.createStarted();
 		project.getLogger().lifecycle(":remapping " + remapList.size() + " mods (TinyRemapper, " + fromM + " -> " + toM + ")");
 
@@ -166,8 +258,6 @@ public class ModProcessor {
 		remapper.readClassPathAsync(mcDeps);
 
 		final Map<ModDependencyInfo, InputTag> tagMap = new HashMap<>();
-		final Map<ModDependencyInfo, OutputConsumerPath> outputConsumerMap = new HashMap<>();
-		final Map<ModDependencyInfo, byte[]> accessWidenerMap = new HashMap<>();
 
 		for (RemappedConfigurationEntry entry : Constants.MOD_COMPILE_ENTRIES) {
 			for (File inputFile : project.getConfigurations().getByName(entry.getSourceConfiguration()).getFiles()) {
@@ -189,57 +279,104 @@ public class ModProcessor {
 		}
 
 		// Apply this in a second loop as we need to ensure all the inputs are on the classpath before remapping.
-		for (ModDependencyInfo info : remapList) {
-			OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(info.getRemappedOutput().toPath()).build();
-			outputConsumer.addNonClassFiles(info.getInputFile().toPath());
-			outputConsumerMap.put(info, outputConsumer);
-			String accessWidener = info.getAccessWidener();
-
-			if (accessWidener != null) {
-				accessWidenerMap.put(info, remapAccessWidener(ZipUtil.unpackEntry(info.inputFile, accessWidener), remapper.getRemapper()));
+		try {
+			for (ModDependencyInfo info : remapList) {
+				writeRemapped(project, info, remapper, tagMap.get(info), mappings);
+				info.finaliseRemapping();
 			}
-
-			remapper.apply(outputConsumer, tagMap.get(info));
+		} finally {
+			remapper.finish();
 		}
 
-		remapper.finish();
 		project.getLogger().lifecycle(":remapped " + remapList.size() + " mods (TinyRemapper, " + fromM + " -> " + toM + ") in " + stopwatch.stop());
+	}
 
-		for (ModDependencyInfo info : remapList) {
-			outputConsumerMap.get(info).close();
-			byte[] accessWidener = accessWidenerMap.get(info);
+	/**
+	 * Writes a remapped mod in a single pass. Its non-class entries are read into memory and every fix-up is applied to
+	 * them there, then they are written followed by the classes as the remapper produces them. Entries keep the time
+	 * they have in the input mod.
+	 */
+	private static void writeRemapped(Project project, ModDependencyInfo info, TinyRemapper remapper, InputTag tag, TinyTree mappings) throws IOException {
+		LoomGradleExtension extension = project.getExtensions().getByType(LoomGradleExtension.class);
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		Map<String, Long> times = new HashMap<>();
+		Remapper classRemapper = remapper.getRemapper();
 
-			if (accessWidener != null) {
-				ZipUtil.replaceEntry(info.getRemappedOutput(), info.getAccessWidener(), accessWidener);
-			}
+		try (ZipFile zipFile = new ZipFile(info.getInputFile())) {
+			Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
 
-			if (extension.isForge()) {
-				AtRemapper.remap(project.getLogger(), info.getRemappedOutput().toPath(), mappings);
-				CoreModClassRemapper.remapJar(info.getRemappedOutput().toPath(), mappings, project.getLogger());
-
-				if (ZipUtil.containsEntry(info.getRemappedOutput(), "META-INF/MANIFEST.MF")) {
-					ZipUtil.transformEntry(info.getRemappedOutput(), "META-INF/MANIFEST.MF", (in, zipEntry, out) -> {
-						Manifest manifest = new Manifest(in);
-						fixManifest(manifest);
-						out.putNextEntry(new ZipEntry(zipEntry.getName()));
-						manifest.write(out);
-						out.closeEntry();
-					});
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry entry = zipEntries.nextElement();
+				String name = entry.getName();
+
+				if (entry.isDirectory()) {
+					continue;
 				}
 
-				List<String> filesToRemove = new ArrayList<>();
-				ZipUtil.iterate(info.getRemappedOutput(), (in, zipEntry) -> {
-					if (zipEntry.getName().toLowerCase(Locale.ROOT).endsWith(".rsa") || zipEntry.getName().toLowerCase(Locale.ROOT).endsWith(".sf")) {
-						if (zipEntry.getName().startsWith("META-INF")) {
-							filesToRemove.add(zipEntry.getName());
-						}
-					}
-				});
-				ZipUtil.removeEntries(info.getRemappedOutput(), filesToRemove.toArray(new String[0]));
+				if (name.endsWith(".class")) {
+					times.put(classRemapper.map(name.substring(0, name.length() - ".class".length())) + ".class", entry.getTime());
+					continue;
+				}
+
+				times.put(name, entry.getTime());
+
+				try (InputStream in = zipFile.getInputStream(entry)) {
+					entries.put(name, IOUtils.toByteArray(in));
+				}
+			}
+		}
+
+		remapMetadata(entries, classRemapper);
+
+		if (extension.isForge()) {
+			byte[] accessTransformer = entries.get("META-INF/accesstransformer.cfg");
+
+			if (accessTransformer != null) {
+				entries.put("META-INF/accesstransformer.cfg", AtRemapper.remap(project.getLogger(), accessTransformer, mappings));
 			}
 
-			info.finaliseRemapping();
+			CoreModClassRemapper.remapJar(entries, info.getRemappedOutput().getName(), mappings, project.getLogger());
+			byte[] manifest = entries.get("META-INF/MANIFEST.MF");
+
+			if (manifest != null) {
+				entries.put("META-INF/MANIFEST.MF", fixManifest(manifest));
+			}
+
+			entries.keySet().removeIf(ModProcessor::isSignature);
 		}
+
+		long now = System.currentTimeMillis();
+		Path output = info.getRemappedOutput().toPath();
+		Files.createDirectories(output.toAbsolutePath().getParent());
+		Path tempPath = Files.createTempFile(output.toAbsolutePath().getParent(), output.getFileName().toString(), ".tmp");
+
+		try {
+			try (ParallelJarWriter writer = new ParallelJarWriter(tempPath, null)) {
+				entries.forEach((name, bytes) -> writer.add(name, bytes, times.getOrDefault(name, now)));
+				remapper.apply((name, bytes) -> {
+					String entryName = (name.startsWith("/") ? name.substring(1) : name) + ".class";
+					writer.add(entryName, bytes, times.getOrDefault(entryName, now));
+				}, tag);
+			}
+
+			ZipReprocessorUtil.moveReplacing(tempPath, output);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	private static byte[] fixManifest(byte[] bytes) throws IOException {
+		Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
+		fixManifest(manifest);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manifest.write(out);
+		return out.toByteArray();
+	}
+
+	private static boolean isSignature(String name) {
+		String lowerCase = name.toLowerCase(Locale.ROOT);
+		return lowerCase.startsWith("meta-inf/") && (lowerCase.endsWith(".rsa") || lowerCase.endsWith(".sf"));
 	}
 
 	private static void fixManifest(Manifest manifest) {
@@ -0,0 +1,143 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.mods;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.Project;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.configuration.processors.dependency.ModDependencyInfo;
+import net.fabricmc.loom.configuration.processors.dependency.ModRemapManifest;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsProvider;
+import net.fabricmc.loom.util.CacheCleanup;
+import net.fabricmc.loom.util.ThreadingUtils;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+
+/**
+ * A content addressed cache of remapped mods in the Gradle user home, shared by every project and by any build agent
+ * that keeps its Gradle user home. Each mod is keyed by its remap manifest, the contents of the mappings file it was
+ * remapped with and whether the Forge fix-ups were applied, so the same mod is only remapped once per set of inputs.
+ * Entries unused for a month are deleted, see {@link CacheCleanup}.
+ *
+ * <p>This is a local cache only, entries are not shared through Gradle's remote build cache. Doing that would need a
+ * cacheable artifact transform ({@code TransformAction}, Gradle 5.3+), which the Gradle 4.9 API loom compiles against
+ * doesn't have, and the remapped mods would also have to stop being resolved at configuration time.
+ */
+public class RemappedModCache {
+	private static final int VERSION = 1;
+
+	private final Path directory;
+	private final String mappingsHash;
+	private final boolean forge;
+
+	public RemappedModCache(Project project) {
+		LoomGradleExtension extension = project.getExtensions().getByType(LoomGradleExtension.class);
+		MappingsProvider mappingsProvider = extension.getMappingsProvider();
+
+		this.directory = extension.getUserCache().toPath().resolve("remapped_mods");
+		this.forge = extension.isForge();
+		this.mappingsHash = ModRemapManifest.hashContents(forge ? mappingsProvider.tinyMappingsWithSrg.toFile() : mappingsProvider.tinyMappings);
+		CacheCleanup.cleanup(directory, 2, path -> true);
+	}
+
+	/**
+	 * Copies the cached output of every mod found in the cache into place, returning the mods that still need remapping.
+	 */
+	public List<ModDependencyInfo> restore(List<ModDependencyInfo> remapList) {
+		List<Boolean> restored = ThreadingUtils.get(remapList, info -> {
+			Path path = getPath(info);
+
+			if (path == null || !Files.exists(path)) {
+				return false;
+			}
+
+			try {
+				copy(path, info.getRemappedOutput().toPath());
+			} catch (IOException e) {
+				// A broken entry is simply remapped again
+				return false;
+			}
+
+			CacheCleanup.markUsed(path);
+			info.finaliseRemapping();
+			return true;
+		});
+
+		List<ModDependencyInfo> missing = new ArrayList<>();
+
+		for (int i = 0; i < remapList.size(); i++) {
+			if (!restored.get(i)) {
+				missing.add(remapList.get(i));
+			}
+		}
+
+		return missing;
+	}
+
+	public void store(List<ModDependencyInfo> remapped) {
+		ThreadingUtils.run(remapped, info -> {
+			Path path = getPath(info);
+
+			if (path != null) {
+				copy(info.getRemappedOutput().toPath(), path);
+			}
+		});
+	}
+
+	private Path getPath(ModDependencyInfo info) {
+		if (info.getRemapManifest() == null) {
+			return null;
+		}
+
+		String key = Hashing.sha256().newHasher()
+				.putInt(VERSION)
+				.putBoolean(forge)
+				.putString(mappingsHash, StandardCharsets.UTF_8).putByte((byte) 0)
+				.putString(info.getRemapManifest().hash(), StandardCharsets.UTF_8)
+				.hash().toString();
+		return directory.resolve(key.substring(0, 2)).resolve(key + ".jar");
+	}
+
+	private static void copy(Path from, Path to) throws IOException {
+		// Copied next to the destination first, so other builds never see half of it
+		Files.createDirectories(to.getParent());
+		Path tempPath = Files.createTempFile(to.getParent(), to.getFileName().toString(), ".tmp");
+
+		try {
+			Files.copy(from, tempPath, StandardCopyOption.REPLACE_EXISTING);
+			ZipReprocessorUtil.moveReplacing(tempPath, to);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonParseException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.CacheCleanup;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+
+/**
+ * The API of the classes in a mod jar and the classes it references from other jars. A mod only has to be remapped
+ * again when the API of a class it references, or of one of their supertypes, changes.
+ *
+ * <p>Indexes are stored in the Gradle user home by the hash of the jar's contents, so a jar is only parsed once. Indexes
+ * unused for a month are deleted, see {@link CacheCleanup}. The most recently used indexes are also kept in memory.
+ */
+public class ModApiIndex {
+	private static final int VERSION = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CACHE_SIZE = 256;
+	private static final Map<String, ModApiIndex> CACHE = Collections.synchronizedMap(new LinkedHashMap<String, ModApiIndex>(16, 0.75F, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ModApiIndex> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	});
+
+	private int version;
+	private Map<String, ClassApi> classes = new TreeMap<>();
+	private Set<String> references = new TreeSet<>();
+
+	/**
+	 * Gets the index of a jar, creating it if it doesn't exist yet.
+	 *
+	 * @param contentHash the hash of the jar's contents, see {@link ModRemapManifest#hashContents(File)}
+	 */
+	public static ModApiIndex get(File jar, String contentHash, File userCache) {
+		ModApiIndex index = CACHE.get(contentHash);
+
+		if (index != null) {
+			return index;
+		}
+
+		Path path = getDirectory(userCache).resolve(contentHash.substring(0, 2)).resolve(contentHash + ".json");
+		index = read(path);
+
+		if (index == null) {
+			index = create(jar);
+
+			try {
+				index.write(path);
+			} catch (IOException e) {
+				// Only saves parsing the jar again next time
+			}
+		}
+
+		CACHE.put(contentHash, index);
+		return index;
+	}
+
+	public static void cleanup(File userCache) {
+		CacheCleanup.cleanup(getDirectory(userCache), 2, path -> true);
+	}
+
+	private static Path getDirectory(File userCache) {
+		return userCache.toPath().resolve("mod-api");
+	}
+
+	/**
+	 * Hashes the API of the classes the given mod references from the other jars, following their supertypes.
+	 *
+	 * @param others the indexes of the other jars on the remap classpath, in classpath order
+	 */
+	public static String hashReferencedApi(ModApiIndex mod, List<ModApiIndex> others) {
+		Map<String, String> hashes = new TreeMap<>();
+		List<String> queue = new ArrayList<>(mod.references);
+
+		while (!queue.isEmpty()) {
+			String name = queue.remove(queue.size() - 1);
+
+			if (hashes.containsKey(name) || mod.classes.containsKey(name)) {
+				continue;
+			}
+
+			for (ModApiIndex other : others) {
+				ClassApi api = other.classes.get(name);
+
+				if (api != null) {
+					hashes.put(name, api.hash);
+					queue.addAll(api.supers);
+					break;
+				}
+			}
+		}
+
+		Hasher hasher = Hashing.sha256().newHasher();
+		hashes.forEach((name, hash) -> hasher.putString(name, StandardCharsets.UTF_8).putByte((byte) 0).putString(hash, StandardCharsets.UTF_8).putByte((byte) 0));
+		return hasher.hash().toString();
+	}
+
+	private static ModApiIndex create(File jar) {
+		ModApiIndex index = new ModApiIndex();
+		index.version = VERSION;
+
+		try (ZipFile zipFile = new ZipFile(jar)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+
+				if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+					continue;
+				}
+
+				try (InputStream in = zipFile.getInputStream(entry)) {
+					ClassReader reader = new ClassReader(in);
+					ApiHasher hasher = new ApiHasher();
+					reader.accept(hasher, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+					index.classes.put(reader.getClassName(), new ClassApi(hasher.hash(), hasher.supers));
+					addReferences(reader, index.references);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Not a readable jar, so it has no classes to remap against
+			ModApiIndex empty = new ModApiIndex();
+			empty.version = VERSION;
+			return empty;
+		}
+
+		index.references.removeAll(index.classes.keySet());
+		return index;
+	}
+
+	/**
+	 * Adds every class in the constant pool, which covers the owners of the fields and methods the class uses.
+	 */
+	private static void addReferences(ClassReader reader, Set<String> references) {
+		char[] buffer = new char[reader.getMaxStringLength()];
+
+		for (int i = 1; i < reader.getItemCount(); i++) {
+			int offset = reader.getItem(i);
+
+			// The second slot of a long or double has no entry
+			if (offset == 0 || reader.readByte(offset - 1) != CONSTANT_CLASS) {
+				continue;
+			}
+
+			String name = reader.readUTF8(offset, buffer);
+
+			if (name.startsWith("[")) {
+				int start = name.lastIndexOf('[') + 1;
+
+				if (name.charAt(start) != 'L') {
+					continue;
+				}
+
+				name = name.substring(start + 1, name.length() - 1);
+			}
+
+			references.add(name);
+		}
+	}
+
+	private static ModApiIndex read(Path path) {
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			ModApiIndex index = LoomGradlePlugin.GSON.fromJson(reader, ModApiIndex.class);
+
+			if (index == null || index.version != VERSION) {
+				return null;
+			}
+
+			CacheCleanup.markUsed(path);
+			return index;
+		} catch (IOException | JsonParseException e) {
+			return null;
+		}
+	}
+
+	private void write(Path path) throws IOException {
+		// Written next to the index first, so other builds never see half of it
+		Files.createDirectories(path.getParent());
+		Path tempPath = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+				LoomGradlePlugin.GSON.toJson(this, writer);
+			}
+
+			ZipReprocessorUtil.moveReplacing(tempPath, path);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	private static class ClassApi {
+		private final String hash;
+		private final List<String> supers;
+
+		private ClassApi(String hash, List<String> supers) {
+			this.hash = hash;
+			this.supers = supers;
+		}
+	}
+
+	/**
+	 * Hashes the parts of a class that affect how other jars are remapped against it: its name and hierarchy, and the
+	 * names and descriptors of non private members. Changes to method bodies or private members don't affect the hash.
+	 */
+	private static class ApiHasher extends ClassVisitor {
+		private final Hasher hasher = Hashing.sha256().newHasher();
+		private final List<String> supers = new ArrayList<>();
+
+		ApiHasher() {
+			super(Opcodes.ASM9);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			hasher.putInt(access).putString(name, StandardCharsets.UTF_8).putByte((byte) 0);
+			hasher.putString(Objects.toString(superName), StandardCharsets.UTF_8).putByte((byte) 0);
+			hasher.putString(Arrays.toString(interfaces), StandardCharsets.UTF_8).putByte((byte) 0);
+
+			if (superName != null) {
+				supers.add(superName);
+			}
+
+			if (interfaces != null) {
+				supers.addAll(Arrays.asList(interfaces));
+			}
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+			if ((access & Opcodes.ACC_PRIVATE) == 0) {
+				hasher.putChar('F').putInt(access).putString(name + descriptor, StandardCharsets.UTF_8).putByte((byte) 0);
+			}
+
+			return null;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			if ((access & Opcodes.ACC_PRIVATE) == 0) {
+				hasher.putChar('M').putInt(access).putString(name + descriptor, StandardCharsets.UTF_8).putByte((byte) 0);
+			}
+
+			return null;
+		}
+
+		String hash() {
+			return hasher.hash().toString();
+		}
+	}
+}
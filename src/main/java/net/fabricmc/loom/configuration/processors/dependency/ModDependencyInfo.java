@@ -52,6 +52,8 @@ public class ModDependencyInfo {
 	public final RemapData remapData;
 
 	private boolean forceRemap = false;
+	@Nullable
+	private ModRemapManifest remapManifest;
 
 	public ModDependencyInfo(String group, String name, String version, @Nullable String classifier, File inputFile, Configuration targetConfig, RemapData remapData) {
 		this.group = group;
@@ -91,6 +93,10 @@ public class ModDependencyInfo {
 		return new File(getRemappedDir(), getRemappedFilename(false) + "-" + classifier + ".jar");
 	}
 
+	public File getRemapManifestFile() {
+		return new File(getRemappedDir(), getRemappedFilename(true) + ".remap.json");
+	}
+
 	private File getRemappedPom() {
 		return new File(getRemappedDir(), String.format("%s-%s", name, version) + ".pom");
 	}
@@ -108,12 +114,49 @@ public class ModDependencyInfo {
 	}
 
 	public boolean requiresRemapping() {
-		return !getRemappedOutput().exists() || inputFile.lastModified() <= 0 || inputFile.lastModified() > getRemappedOutput().lastModified() || forceRemap || !getRemappedPom().exists();
+		if (!getRemappedOutput().exists() || forceRemap || !getRemappedPom().exists()) {
+			return true;
+		}
+
+		ModRemapManifest previous = remapManifest != null ? ModRemapManifest.read(getRemapManifestFile()) : null;
+
+		if (previous != null) {
+			return !previous.equals(remapManifest);
+		}
+
+		// Remapped before manifests were recorded, or the current manifest isn't known yet
+		return inputFile.lastModified() <= 0 || inputFile.lastModified() > getRemappedOutput().lastModified();
+	}
+
+	/**
+	 * Sets the manifest describing the current inputs of this mod, which {@link #requiresRemapping()} compares against
+	 * the manifest recorded when the mod was last remapped.
+	 */
+	public void setRemapManifest(ModRemapManifest remapManifest) {
+		this.remapManifest = remapManifest;
+	}
+
+	@Nullable
+	public ModRemapManifest getRemapManifest() {
+		return remapManifest;
+	}
+
+	public void saveRemapManifest() {
+		if (remapManifest == null) {
+			return;
+		}
+
+		try {
+			remapManifest.write(getRemapManifestFile());
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write mod remap manifest", e);
+		}
 	}
 
 	public void finaliseRemapping() {
 		getRemappedOutput().setLastModified(inputFile.lastModified());
 		savePom();
+		saveRemapManifest();
 	}
 
 	private void savePom() {
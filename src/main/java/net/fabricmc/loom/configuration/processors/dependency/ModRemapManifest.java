@@ -0,0 +1,126 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.processors.dependency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonParseException;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+
+/**
+ * Records what a remapped mod was built from: the hash of the input jar, the mappings it was remapped with and the
+ * hash of its remap classpath, see {@link ModApiIndex}. A mod only needs remapping again when one of them changes.
+ */
+public class ModRemapManifest {
+	private final String inputHash;
+	private final String mappingsKey;
+	private final String classpathHash;
+
+	public ModRemapManifest(String inputHash, String mappingsKey, String classpathHash) {
+		this.inputHash = inputHash;
+		this.mappingsKey = mappingsKey;
+		this.classpathHash = classpathHash;
+	}
+
+	public static ModRemapManifest read(File file) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			return LoomGradlePlugin.GSON.fromJson(reader, ModRemapManifest.class);
+		} catch (IOException | JsonParseException e) {
+			return null;
+		}
+	}
+
+	public void write(File file) throws IOException {
+		file.getParentFile().mkdirs();
+
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			LoomGradlePlugin.GSON.toJson(this, writer);
+		}
+	}
+
+	/**
+	 * Hashes the full contents of a jar.
+	 */
+	public static String hashContents(File file) {
+		try {
+			return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to hash " + file, e);
+		}
+	}
+
+	/**
+	 * Combines the hashes of the jars on a remap classpath, independent of their order.
+	 */
+	public static String hashClasspath(Collection<String> hashes) {
+		List<String> sorted = new ArrayList<>(hashes);
+		Collections.sort(sorted);
+
+		Hasher hasher = Hashing.sha256().newHasher();
+		sorted.forEach(hash -> hasher.putString(hash, StandardCharsets.UTF_8).putByte((byte) 0));
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Combines every input recorded in this manifest into a single hash.
+	 */
+	public String hash() {
+		return Hashing.sha256().newHasher()
+				.putString(Objects.toString(inputHash), StandardCharsets.UTF_8).putByte((byte) 0)
+				.putString(Objects.toString(mappingsKey), StandardCharsets.UTF_8).putByte((byte) 0)
+				.putString(Objects.toString(classpathHash), StandardCharsets.UTF_8)
+				.hash().toString();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof ModRemapManifest)) return false;
+		ModRemapManifest that = (ModRemapManifest) o;
+		return Objects.equals(inputHash, that.inputHash) && Objects.equals(mappingsKey, that.mappingsKey) && Objects.equals(classpathHash, that.classpathHash);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(inputHash, mappingsKey, classpathHash);
+	}
+}
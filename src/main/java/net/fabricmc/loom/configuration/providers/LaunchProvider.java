@@ -34,10 +34,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableSet;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Dependency;
@@ -46,6 +48,8 @@ import org.gradle.api.plugins.JavaPlugin;
 import net.fabricmc.loom.configuration.DependencyProvider;
 import net.fabricmc.loom.configuration.RemappedConfigurationEntry;
 import net.fabricmc.loom.configuration.launch.LaunchProviderSettings;
+import net.fabricmc.loom.configuration.providers.forge.ForgeProvider;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsProvider;
 import net.fabricmc.loom.util.Constants;
 
 public class LaunchProvider extends DependencyProvider {
@@ -73,6 +77,7 @@ public class LaunchProvider extends DependencyProvider {
 		if (getExtension().isForge()) {
 			launchConfig
 					.property("fabric.yarnWithSrg.path", getExtension().getMappingsProvider().tinyMappingsWithSrg.toAbsolutePath().toString())
+					.property("fabric.yarnWithSrg.names.path", getExtension().getMappingsProvider().srgToNamedNames.getAbsolutePath())
 
 					.argument("--fml.mcVersion")
 					.argument(getExtension().getMinecraftProvider().getMinecraftVersion())
@@ -194,6 +199,11 @@ public class LaunchProvider extends DependencyProvider {
 		return Constants.Configurations.MINECRAFT_NAMED;
 	}
 
+	@Override
+	public Set<Class<? extends DependencyProvider>> getRequiredProviders() {
+		return ImmutableSet.of(MinecraftProvider.class, MappingsProvider.class, ForgeProvider.class);
+	}
+
 	public static class LaunchConfig {
 		private final Map<String, List<String>> values = new HashMap<>();
 
@@ -29,7 +29,9 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import com.google.common.base.Stopwatch;
@@ -88,7 +90,7 @@ public class MinecraftProvider extends DependencyProvider {
 		}
 
 		// Add Loom as an annotation processor
-		addDependency(getProject().files(this.getClass().getProtectionDomain().getCodeSource().getLocation()), "compileOnly");
+		changeModel(() -> addDependency(getProject().files(this.getClass().getProtectionDomain().getCodeSource().getLocation()), "compileOnly"));
 
 		if (offline) {
 			if (minecraftClientJar.exists() && minecraftServerJar.exists()) {
@@ -271,4 +273,18 @@ public class MinecraftProvider extends DependencyProvider {
 	public String getTargetConfig() {
 		return Constants.Configurations.MINECRAFT;
 	}
+
+	@Override
+	public Set<String> getProvidedConfigs() {
+		if (getExtension().shouldGenerateSrgTiny() && !getExtension().isForge()) {
+			return Collections.singleton(Constants.Configurations.SRG);
+		}
+
+		return Collections.emptySet();
+	}
+
+	@Override
+	public boolean canProvideInParallel() {
+		return true;
+	}
 }
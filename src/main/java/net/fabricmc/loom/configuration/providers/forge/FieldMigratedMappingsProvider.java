@@ -128,6 +128,7 @@ public class FieldMigratedMappingsProvider extends MappingsProvider {
 		tinyMappingsWithSrg = mappingsFolder.resolve("mappings-srg.tiny");
 		mixinTinyMappingsWithSrg = mappingsFolder.resolve("mixin-srg.tiny").toFile();
 		srgToNamedSrg = mappingsFolder.resolve("srg-to-named.srg").toFile();
+		srgToNamedNames = mappingsFolder.resolve("srg-to-named.names").toFile();
 
 		try {
 			updateFieldMigration();
@@ -24,8 +24,10 @@
 
 package net.fabricmc.loom.configuration.providers.forge;
 
+import java.util.Set;
 import java.util.function.Consumer;
 
+import com.google.common.collect.ImmutableSet;
 import org.gradle.api.Project;
 
 import net.fabricmc.loom.configuration.DependencyProvider;
@@ -54,6 +56,11 @@ public class ForgeProvider extends DependencyProvider {
 		return Constants.Configurations.FORGE;
 	}
 
+	@Override
+	public Set<String> getProvidedConfigs() {
+		return ImmutableSet.of(Constants.Configurations.FORGE_USERDEV, Constants.Configurations.FORGE_INSTALLER);
+	}
+
 	public static final class ForgeVersion {
 		private final String minecraftVersion;
 		private final String forgeVersion;
@@ -69,4 +69,14 @@ public class ForgeUniversalProvider extends DependencyProvider {
 	public String getTargetConfig() {
 		return Constants.Configurations.FORGE_UNIVERSAL;
 	}
+
+	@Override
+	public boolean canProvideInParallel() {
+		return true;
+	}
+
+	@Override
+	public boolean resolvesDependencyFiles() {
+		return true;
+	}
 }
@@ -32,9 +32,11 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -102,4 +104,19 @@ public class ForgeUserdevProvider extends DependencyProvider {
 	public String getTargetConfig() {
 		return Constants.Configurations.FORGE_USERDEV;
 	}
+
+	@Override
+	public Set<String> getProvidedConfigs() {
+		return ImmutableSet.of(Constants.Configurations.MCP_CONFIG, Constants.Configurations.SRG, Constants.Configurations.FORGE_UNIVERSAL);
+	}
+
+	@Override
+	public boolean canProvideInParallel() {
+		return true;
+	}
+
+	@Override
+	public boolean resolvesDependencyFiles() {
+		return true;
+	}
 }
@@ -69,4 +69,14 @@ public class McpConfigProvider extends DependencyProvider {
 	public String getTargetConfig() {
 		return Constants.Configurations.MCP_CONFIG;
 	}
+
+	@Override
+	public boolean canProvideInParallel() {
+		return true;
+	}
+
+	@Override
+	public boolean resolvesDependencyFiles() {
+		return true;
+	}
 }
@@ -30,6 +30,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
@@ -43,16 +44,22 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
 import com.google.gson.JsonParser;
 import de.oceanlabs.mcp.mcinjector.adaptors.ParameterAnnotationFixer;
 import dev.architectury.tinyremapper.OutputConsumerPath;
@@ -72,12 +79,14 @@ import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
 import org.zeroturnaround.zip.ZipUtil;
 
 import net.fabricmc.loom.configuration.DependencyProvider;
 import net.fabricmc.loom.configuration.providers.MinecraftProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftMappedProvider;
+import net.fabricmc.loom.util.CacheCleanup;
 import net.fabricmc.loom.util.Checksum;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.DownloadUtil;
@@ -105,6 +114,8 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 	private File minecraftServerPatchedOfficialJar;
 	// Step 5: Merge
 	private File minecraftMergedPatchedJar;
+	// Step 6: Link the merged jar into the project if it uses its own access transformer
+	private File projectMergedPatchedJar;
 	private File projectAtHash;
 	@Nullable
 	private File projectAt = null;
@@ -155,11 +166,13 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 		minecraftProvider.setJarSuffix(patchId);
 
 		File globalCache = getExtension().getUserCache();
-		File cache = usesProjectCache() ? getExtension().getProjectPersistentCache() : globalCache;
 		File globalDir = new File(globalCache, patchId);
-		File projectDir = new File(cache, patchId);
+		// The access transformed jars are keyed by the AT contents, so projects with identical ATs share them
+		File projectDir = usesProjectCache() ? new File(globalDir, "at-" + getAtCacheKey(minecraftVersion, patchId)) : globalDir;
 		globalDir.mkdirs();
 		projectDir.mkdirs();
+		CacheCleanup.markUsed(projectDir.toPath());
+		CacheCleanup.cleanup(globalDir.toPath(), 1, path -> path.getFileName().toString().startsWith("at-"));
 
 		minecraftClientSrgJar = new File(globalCache, "minecraft-" + minecraftVersion + "-client-srg.jar");
 		minecraftServerSrgJar = new File(globalCache, "minecraft-" + minecraftVersion + "-server-srg.jar");
@@ -170,14 +183,28 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 		minecraftClientPatchedOfficialJar = new File(projectDir, "client-patched.jar");
 		minecraftServerPatchedOfficialJar = new File(projectDir, "server-patched.jar");
 		minecraftMergedPatchedJar = new File(projectDir, "merged-patched.jar");
+		projectMergedPatchedJar = usesProjectCache() ? new File(getExtension().getProjectPersistentCache(), patchId + "/merged-patched.jar") : minecraftMergedPatchedJar;
 
 		if (isRefreshDeps() || Stream.of(getGlobalCaches()).anyMatch(Predicates.not(File::exists))) {
 			cleanAllCache();
-		} else if (atDirty || Stream.of(getProjectCache()).anyMatch(Predicates.not(File::exists))) {
+		} else if (Stream.of(getProjectCache()).anyMatch(Predicates.not(File::exists))) {
 			cleanProjectCache();
 		}
 	}
 
+	private String getAtCacheKey(String minecraftVersion, String patchId) throws IOException {
+		return Hashing.sha256().newHasher()
+				.putString(minecraftVersion, StandardCharsets.UTF_8)
+				.putByte((byte) 0)
+				.putString(patchId, StandardCharsets.UTF_8)
+				.putByte((byte) 0)
+				.putString(getExtension().getMappingsProvider().getMappingsKey(), StandardCharsets.UTF_8)
+				.putByte((byte) 0)
+				.putBytes(Files.readAllBytes(projectAt.toPath()))
+				.hash()
+				.toString();
+	}
+
 	public void cleanAllCache() {
 		for (File file : getGlobalCaches()) {
 			file.delete();
@@ -202,6 +229,11 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 	}
 
 	private File[] getProjectCache() {
+		if (getExtension().streamForgePatches) {
+			// The intermediate project jars are never written when streaming
+			return new File[] {minecraftMergedPatchedJar};
+		}
+
 		return new File[] {
 				minecraftClientPatchedSrgATJar,
 				minecraftServerPatchedSrgATJar,
@@ -231,28 +263,63 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 
 		if (!minecraftClientPatchedSrgJar.exists() || !minecraftServerPatchedSrgJar.exists()) {
 			this.dirty = true;
-			patchJars(getProject().getLogger());
-			injectForgeClasses(getProject().getLogger());
+
+			if (getExtension().streamForgePatches) {
+				streamPatchedJars(getProject().getLogger());
+			} else {
+				patchJars(getProject().getLogger());
+				injectForgeClasses(getProject().getLogger());
+			}
 		}
 	}
 
 	public void finishProvide() throws Exception {
-		if (atDirty || !minecraftClientPatchedSrgATJar.exists() || !minecraftServerPatchedSrgATJar.exists()) {
-			this.dirty = true;
-			accessTransformForge(getProject().getLogger());
-		}
+		if (getExtension().streamForgePatches) {
+			if (dirty || !minecraftMergedPatchedJar.exists()) {
+				streamMergedJar(getProject().getLogger());
+			}
+		} else {
+			if (!minecraftClientPatchedSrgATJar.exists() || !minecraftServerPatchedSrgATJar.exists()) {
+				this.dirty = true;
+				accessTransformForge(getProject().getLogger());
+			}
+
+			if (dirty) {
+				remapPatchedJars(getProject().getLogger());
+			}
 
-		if (dirty) {
-			remapPatchedJars(getProject().getLogger());
+			if (dirty || !minecraftMergedPatchedJar.exists()) {
+				mergeJars(getProject().getLogger());
+			}
 		}
 
-		if (dirty || !minecraftMergedPatchedJar.exists()) {
-			mergeJars(getProject().getLogger());
+		if (usesProjectCache()) {
+			linkOrCopy(minecraftMergedPatchedJar, projectMergedPatchedJar);
 		}
 
 		this.dirty = false;
 	}
 
+	private static void linkOrCopy(File source, File target) throws IOException {
+		Path targetPath = target.toPath();
+
+		// Already linked, or copied with the same size and time, so the jar that may be held open is left alone
+		if (Files.exists(targetPath) && (Files.isSameFile(source.toPath(), targetPath)
+				|| source.length() == target.length() && source.lastModified() == target.lastModified())) {
+			return;
+		}
+
+		Files.createDirectories(targetPath.getParent());
+		Files.deleteIfExists(targetPath);
+
+		try {
+			Files.createLink(targetPath, source.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			// Hard links aren't supported everywhere, for example across drives
+			Files.copy(source.toPath(), targetPath, StandardCopyOption.COPY_ATTRIBUTES);
+		}
+	}
+
 	private void writeAtHash() throws IOException {
 		try (FileOutputStream out = new FileOutputStream(projectAtHash)) {
 			if (projectAt != null) {
@@ -310,14 +377,7 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 
 				completer.add(() -> {
 					byte[] bytes = Files.readAllBytes(file);
-					ClassReader reader = new ClassReader(bytes);
-					ClassNode node = new ClassNode();
-					ClassVisitor visitor = new ParameterAnnotationFixer(node, null);
-					reader.accept(visitor, 0);
-
-					ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-					node.accept(writer);
-					byte[] out = writer.toByteArray();
+					byte[] out = fixParameterAnnotation(bytes);
 
 					if (!Arrays.equals(bytes, out)) {
 						Files.delete(file);
@@ -332,6 +392,17 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 		getProject().getLogger().info(":fixing parameter annotations for " + jarFile.getAbsolutePath() + " in " + stopwatch);
 	}
 
+	private static byte[] fixParameterAnnotation(byte[] bytes) {
+		ClassReader reader = new ClassReader(bytes);
+		ClassNode node = new ClassNode();
+		ClassVisitor visitor = new ParameterAnnotationFixer(node, null);
+		reader.accept(visitor, 0);
+
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		node.accept(writer);
+		return writer.toByteArray();
+	}
+
 	private void injectForgeClasses(Logger logger) throws IOException {
 		logger.lifecycle(":injecting forge classes into minecraft");
 		ThreadingUtils.run(Environment.values(), environment -> {
@@ -431,26 +502,31 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 		}
 	}
 
+	private TinyRemapper createSrgToOfficialRemapper(Path input) throws IOException {
+		TinyTree mappingsWithSrg = getExtension().getMappingsProvider().getMappingsWithSrg();
+
+		return TinyRemapper.newRemapper()
+				.logger(getProject().getLogger()::lifecycle)
+				.withMappings(TinyRemapperMappingsHelper.create(mappingsWithSrg, "srg", "official", true))
+				.withMappings(InnerClassRemapper.of(input, mappingsWithSrg, "srg", "official"))
+				.renameInvalidLocals(true)
+				.rebuildSourceFilenames(true)
+				.fixPackageAccess(true)
+				.build();
+	}
+
 	private void remapPatchedJars(Logger logger) throws Exception {
 		Path[] libraries = MinecraftMappedProvider.getRemapClasspath(getProject());
 
 		ThreadingUtils.run(Environment.values(), environment -> {
 			logger.lifecycle(":remapping minecraft (TinyRemapper, " + environment.side() + ", srg -> official)");
-			TinyTree mappingsWithSrg = getExtension().getMappingsProvider().getMappingsWithSrg();
 
 			Path input = environment.patchedSrgATJar.apply(this).toPath();
 			Path output = environment.patchedOfficialJar.apply(this).toPath();
 
 			Files.deleteIfExists(output);
 
-			TinyRemapper remapper = TinyRemapper.newRemapper()
-					.logger(getProject().getLogger()::lifecycle)
-					.withMappings(TinyRemapperMappingsHelper.create(mappingsWithSrg, "srg", "official", true))
-					.withMappings(InnerClassRemapper.of(input, mappingsWithSrg, "srg", "official"))
-					.renameInvalidLocals(true)
-					.rebuildSourceFilenames(true)
-					.fixPackageAccess(true)
-					.build();
+			TinyRemapper remapper = createSrgToOfficialRemapper(input);
 
 			try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(output).build()) {
 				outputConsumer.addNonClassFiles(input);
@@ -514,6 +590,204 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 		copyNonClassFiles(minecraftProvider.minecraftServerJar, minecraftMergedPatchedJar);
 	}
 
+	/**
+	 * Streaming variant of {@link #patchJars(Logger)} and {@link #injectForgeClasses(Logger)}.
+	 * Missing classes, parameter annotation fixes and the injected Forge classes are applied in memory,
+	 * so each patched jar is written once instead of being rewritten after every step.
+	 */
+	private void streamPatchedJars(Logger logger) throws Exception {
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		logger.lifecycle(":patching jars (streaming)");
+
+		PatchProvider patchProvider = getExtension().getPatchProvider();
+		Map<Environment, File> binPatched = new LinkedHashMap<>();
+
+		try {
+			// The binary patcher redirects System.out, so it can't run in parallel
+			for (Environment environment : Environment.values()) {
+				File output = File.createTempFile("patched-" + environment.side(), ".jar");
+				binPatched.put(environment, output);
+				output.delete();
+				patchJars(environment.srgJar.apply(this), output, environment == Environment.CLIENT ? patchProvider.clientPatches : patchProvider.serverPatches);
+			}
+
+			Map<String, byte[]> forgeEntries = readJar(getExtension().getForgeUniversalProvider().getForge(), name -> true);
+			Map<String, byte[]> userdevEntries = new LinkedHashMap<>();
+			readJar(getExtension().getForgeUserdevProvider().getUserdevJar(), name -> name.startsWith("inject/"))
+					.forEach((name, bytes) -> userdevEntries.put(name.substring("inject/".length()), bytes));
+			Map<String, byte[]> injectionEntries = readInjection();
+
+			ThreadingUtils.run(Environment.values(), environment -> {
+				Map<String, byte[]> entries = readJar(binPatched.get(environment), name -> true);
+
+				// Classes without patches aren't included in the output of the binary patcher
+				readJar(environment.srgJar.apply(this), name -> name.endsWith(".class")).forEach(entries::putIfAbsent);
+
+				ThreadingUtils.TaskCompleter completer = ThreadingUtils.taskCompleter();
+
+				for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+					if (entry.getKey().endsWith(".class")) {
+						completer.add(() -> entry.setValue(fixParameterAnnotation(entry.getValue())));
+					}
+				}
+
+				completer.complete();
+
+				entries.putAll(forgeEntries);
+				entries.putAll(userdevEntries);
+				entries.putAll(injectionEntries);
+				// Still written to disk: it is shared by every project using this Forge version, so a project with
+				// different access transformers only has to run streamMergedJar, not the binary patcher again
+				writeJar(environment.patchedSrgJar.apply(this), entries);
+			});
+		} finally {
+			for (File file : binPatched.values()) {
+				Files.deleteIfExists(file.toPath());
+			}
+		}
+
+		logger.lifecycle(":patched jars in " + stopwatch.stop());
+	}
+
+	private Map<String, byte[]> readInjection() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+
+		try (ZipInputStream in = new ZipInputStream(MinecraftProvider.class.getResourceAsStream("/inject/injection.jar"))) {
+			ZipEntry entry;
+
+			while ((entry = in.getNextEntry()) != null) {
+				String name = entry.getName();
+
+				if (entry.isDirectory() || name.endsWith("MANIFEST.MF")) {
+					continue;
+				}
+
+				if (getExtension().useFabricMixin || !name.endsWith("cpw.mods.modlauncher.api.ITransformationService")) {
+					entries.put(name, IOUtils.toByteArray(in));
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Streaming variant of {@link #accessTransformForge(Logger)}, {@link #remapPatchedJars(Logger)} and {@link #mergeJars(Logger)}.
+	 * The patched client jar is access transformed and remapped in memory, only the merged jar is written to disk.
+	 */
+	private void streamMergedJar(Logger logger) throws Exception {
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		// There are no server-only classes so only the client jar ends up in the merged jar, see mergeJars
+		Environment environment = Environment.CLIENT;
+		File input = environment.patchedSrgJar.apply(this);
+		Map<String, byte[]> entries = readJar(input, name -> true);
+
+		logger.lifecycle(":access transforming minecraft (" + environment.side() + ", in memory)");
+		accessTransform(environment, entries);
+
+		logger.lifecycle(":remapping minecraft (TinyRemapper, " + environment.side() + ", srg -> official, in memory)");
+		Map<String, byte[]> output = new LinkedHashMap<>();
+		entries.forEach((name, bytes) -> {
+			if (!name.endsWith(".class")) {
+				output.put(name, bytes);
+			}
+		});
+
+		TinyRemapper remapper = createSrgToOfficialRemapper(input.toPath());
+
+		try {
+			remapper.readClassPath(MinecraftMappedProvider.getRemapClasspath(getProject()));
+			remapper.readInputs(entries.entrySet().stream()
+					.filter(entry -> entry.getKey().endsWith(".class"))
+					.map(Map.Entry::getValue)
+					.toArray(byte[][]::new));
+			entries.clear();
+			remapper.apply((path, bytes) -> {
+				if (path.startsWith("/")) path = path.substring(1);
+
+				synchronized (output) {
+					output.put(path + ".class", bytes);
+				}
+			});
+		} finally {
+			remapper.finish();
+		}
+
+		logger.lifecycle(":copying resources");
+
+		MinecraftProvider minecraftProvider = getExtension().getMinecraftProvider();
+		output.putAll(readJar(minecraftProvider.minecraftClientJar, name -> !name.endsWith(".class")));
+		output.putAll(readJar(minecraftProvider.minecraftServerJar, name -> !name.endsWith(".class")));
+		writeJar(minecraftMergedPatchedJar, output);
+
+		logger.lifecycle(":created merged jar in " + stopwatch.stop());
+	}
+
+	private void accessTransform(Environment environment, Map<String, byte[]> entries) throws Exception {
+		byte[] forgeAt = entries.get("META-INF/accesstransformer.cfg");
+
+		if (forgeAt == null) {
+			throw new IllegalStateException("Failed to find 'META-INF/accesstransformer.cfg' in " + environment.patchedSrgJar.apply(this).getAbsolutePath() + "!");
+		}
+
+		File at = File.createTempFile("at" + environment.side(), ".cfg");
+
+		try {
+			Files.write(at.toPath(), forgeAt);
+			resetAccessTransformerEngine();
+			AccessTransformerEngine.INSTANCE.addResource(at.toPath(), at.getName());
+
+			if (usesProjectCache()) {
+				AccessTransformerEngine.INSTANCE.addResource(projectAt.toPath(), projectAt.getName());
+			}
+
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				String name = entry.getKey();
+				if (!name.endsWith(".class")) continue;
+
+				Type type = Type.getObjectType(name.substring(0, name.length() - ".class".length()));
+
+				if (AccessTransformerEngine.INSTANCE.handlesClass(type)) {
+					ClassNode node = new ClassNode();
+					new ClassReader(entry.getValue()).accept(node, 0);
+					AccessTransformerEngine.INSTANCE.transform(node, type);
+
+					ClassWriter writer = new ClassWriter(0);
+					node.accept(writer);
+					entry.setValue(writer.toByteArray());
+				}
+			}
+		} finally {
+			Files.deleteIfExists(at.toPath());
+		}
+	}
+
+	private static Map<String, byte[]> readJar(File file, Predicate<String> filter) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(file)) {
+			for (ZipEntry entry : Collections.list(zipFile.entries())) {
+				if (!entry.isDirectory() && filter.test(entry.getName())) {
+					try (InputStream in = zipFile.getInputStream(entry)) {
+						entries.put(entry.getName(), IOUtils.toByteArray(in));
+					}
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	private static void writeJar(File file, Map<String, byte[]> entries) throws IOException {
+		try (OutputStream out = new FileOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zip.putNextEntry(new ZipEntry(entry.getKey()));
+				zip.write(entry.getValue());
+				zip.closeEntry();
+			}
+		}
+	}
+
 	private void walkFileSystems(File source, File target, Predicate<Path> filter, Function<FileSystem, Iterable<Path>> toWalk, FsPathConsumer action)
 			throws IOException {
 		try (FileSystemUtil.FileSystemDelegate sourceFs = FileSystemUtil.getJarFileSystem(source, false);
@@ -586,7 +860,7 @@ public class MinecraftPatchedProvider extends DependencyProvider {
 	}
 
 	public File getMergedJar() {
-		return minecraftMergedPatchedJar;
+		return projectMergedPatchedJar;
 	}
 
 	public boolean usesProjectCache() {
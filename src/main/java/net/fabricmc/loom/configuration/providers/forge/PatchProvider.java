@@ -87,4 +87,14 @@ public class PatchProvider extends DependencyProvider {
 	public String getTargetConfig() {
 		return Constants.Configurations.FORGE_INSTALLER;
 	}
+
+	@Override
+	public boolean canProvideInParallel() {
+		return true;
+	}
+
+	@Override
+	public boolean resolvesDependencyFiles() {
+		return true;
+	}
 }
@@ -75,4 +75,14 @@ public class SrgProvider extends DependencyProvider {
 	public String getTargetConfig() {
 		return Constants.Configurations.SRG;
 	}
+
+	@Override
+	public boolean canProvideInParallel() {
+		return true;
+	}
+
+	@Override
+	public boolean resolvesDependencyFiles() {
+		return true;
+	}
 }
@@ -0,0 +1,760 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.loom.util.OperatingSystem;
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.LocalVariableDef;
+import net.fabricmc.mapping.tree.Mapped;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.ParameterDef;
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * A {@link TinyTree} backed by a compact binary index stored next to the tiny file it was created from.
+ *
+ * <p>The index consists of an interned string table, fixed layout records for every class and its members and
+ * one array of class offsets per namespace sorted by the class names in that namespace. Opening an index only
+ * maps the file, strings are decoded lazily when they are first requested.
+ *
+ * <p>Names and descriptors are stored as resolved by the tree the index was created from,
+ * so lookups behave exactly like they do on the parsed tiny file.
+ */
+public final class IndexedTinyTree implements TinyTree {
+	private static final int MAGIC = 0x4C4D4958;
+	private static final int VERSION = 3;
+	private static final int HEADER_SIZE = 100;
+	private static final int MODIFIED_POS = 16;
+	private static final int HASH_POS = 24;
+	private static final int NONE = -1;
+
+	private final ByteBuffer buffer;
+	private final int namespaceCount;
+	private final int stringOffsetsPos;
+	private final int stringDataPos;
+	private final int classCount;
+	private final int classOffsetsPos;
+	private final int sortedPos;
+	private final String[] strings;
+	private final List<String> namespaces;
+	private final TinyMetadata metadata;
+	private final Map<String, ClassDef> defaultNamespaceClassMap = new DefaultNamespaceClassMap();
+
+	private IndexedTinyTree(ByteBuffer buffer) {
+		this.buffer = buffer;
+		int major = buffer.getInt(56);
+		int minor = buffer.getInt(60);
+		this.namespaceCount = buffer.getInt(64);
+		int propertyCount = buffer.getInt(68);
+		this.strings = new String[buffer.getInt(72)];
+		this.classCount = buffer.getInt(76);
+		this.stringOffsetsPos = buffer.getInt(80);
+		this.stringDataPos = buffer.getInt(84);
+		this.classOffsetsPos = buffer.getInt(88);
+		this.sortedPos = buffer.getInt(92);
+		int metaPos = buffer.getInt(96);
+
+		List<String> namespaces = new ArrayList<>(namespaceCount);
+
+		for (int i = 0; i < namespaceCount; i++) {
+			namespaces.add(string(buffer.getInt(metaPos + i * 4)));
+		}
+
+		Map<String, String> properties = new LinkedHashMap<>();
+
+		for (int i = 0; i < propertyCount; i++) {
+			int pos = metaPos + (namespaceCount + i * 2) * 4;
+			properties.put(string(buffer.getInt(pos)), string(buffer.getInt(pos + 4)));
+		}
+
+		this.namespaces = Collections.unmodifiableList(namespaces);
+		this.metadata = new Metadata(major, minor, this.namespaces, Collections.unmodifiableMap(properties));
+	}
+
+	/**
+	 * Loads the mappings at the given path, using the index next to it if it is up to date.
+	 * A missing or outdated index is rebuilt from the tiny file.
+	 *
+	 * <p>The index records the size, modification time and hash of the tiny file it was created from. It is trusted
+	 * when the size and modification time match, the file is only hashed when the modification time differs, so a
+	 * touched but unchanged file keeps its index. A rewrite that keeps both the size and the modification time
+	 * isn't noticed, the same as for Gradle's own up-to-date checks.
+	 */
+	public static TinyTree load(Path mappings) throws IOException {
+		Path indexPath = getIndexPath(mappings);
+		long size = Files.size(mappings);
+		long modified = Files.getLastModifiedTime(mappings).toMillis();
+		byte[] hash = null;
+
+		if (Files.exists(indexPath)) {
+			ByteBuffer buffer = map(indexPath);
+
+			if (buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+					&& buffer.getLong(8) == size) {
+				if (buffer.getLong(MODIFIED_POS) == modified) {
+					return new IndexedTinyTree(buffer);
+				}
+
+				hash = hash(mappings);
+
+				if (hashMatches(buffer, hash)) {
+					updateModified(indexPath, modified);
+					return new IndexedTinyTree(buffer);
+				}
+			}
+		}
+
+		if (hash == null) {
+			hash = hash(mappings);
+		}
+
+		TinyTree parsed;
+
+		try (BufferedReader reader = Files.newBufferedReader(mappings)) {
+			parsed = TinyMappingFactory.loadWithDetection(reader);
+		}
+
+		try {
+			Path tmp = Files.createTempFile(indexPath.getParent(), indexPath.getFileName().toString(), ".tmp");
+
+			try {
+				try (OutputStream out = Files.newOutputStream(tmp)) {
+					write(parsed, size, modified, hash, out);
+				}
+
+				Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			// The index is only an optimisation, the parsed tree is just as good
+			return parsed;
+		}
+
+		return new IndexedTinyTree(map(indexPath));
+	}
+
+	public static Path getIndexPath(Path mappings) {
+		return mappings.resolveSibling(mappings.getFileName() + ".idx");
+	}
+
+	private static ByteBuffer map(Path indexPath) throws IOException {
+		if (OperatingSystem.isWindows()) {
+			// Mapped files can't be replaced or deleted on Windows until they are garbage collected
+			return ByteBuffer.wrap(Files.readAllBytes(indexPath));
+		}
+
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static byte[] hash(Path mappings) throws IOException {
+		return com.google.common.io.Files.asByteSource(mappings.toFile()).hash(Hashing.sha256()).asBytes();
+	}
+
+	private static boolean hashMatches(ByteBuffer buffer, byte[] hash) {
+		for (int i = 0; i < hash.length; i++) {
+			if (buffer.get(HASH_POS + i) != hash[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static void updateModified(Path indexPath, long modified) {
+		ByteBuffer bytes = ByteBuffer.allocate(8).putLong(0, modified);
+
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+			channel.write(bytes, MODIFIED_POS);
+		} catch (IOException e) {
+			// The next load only hashes the file again
+		}
+	}
+
+	private static void write(TinyTree tree, long sourceSize, long sourceModified, byte[] sourceHash, OutputStream out) throws IOException {
+		List<String> namespaces = tree.getMetadata().getNamespaces();
+		Map<String, String> properties = tree.getMetadata().getProperties();
+		List<ClassDef> classes = new ArrayList<>(tree.getClasses());
+		StringTable strings = new StringTable();
+
+		ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+		DataOutputStream records = new DataOutputStream(recordBytes);
+		int[] classOffsets = new int[classes.size()];
+
+		for (int i = 0; i < classes.size(); i++) {
+			ClassDef classDef = classes.get(i);
+			Collection<FieldDef> fields = classDef.getFields();
+			Collection<MethodDef> methods = classDef.getMethods();
+			classOffsets[i] = records.size();
+			writeMapped(records, strings, namespaces, classDef);
+			records.writeInt(strings.get(classDef.getComment()));
+			records.writeInt(fields.size());
+			records.writeInt(methods.size());
+
+			for (FieldDef field : fields) {
+				writeMapped(records, strings, namespaces, field);
+
+				for (String namespace : namespaces) {
+					records.writeInt(strings.get(field.getDescriptor(namespace)));
+				}
+
+				records.writeInt(strings.get(field.getComment()));
+			}
+
+			for (MethodDef method : methods) {
+				writeMapped(records, strings, namespaces, method);
+
+				for (String namespace : namespaces) {
+					records.writeInt(strings.get(method.getDescriptor(namespace)));
+				}
+
+				records.writeInt(strings.get(method.getComment()));
+				records.writeInt(method.getParameters().size());
+
+				for (ParameterDef parameter : method.getParameters()) {
+					writeMapped(records, strings, namespaces, parameter);
+					records.writeInt(strings.get(parameter.getComment()));
+					records.writeInt(parameter.getLocalVariableIndex());
+				}
+
+				records.writeInt(method.getLocalVariables().size());
+
+				for (LocalVariableDef local : method.getLocalVariables()) {
+					writeMapped(records, strings, namespaces, local);
+					records.writeInt(strings.get(local.getComment()));
+					records.writeInt(local.getLocalVariableIndex());
+					records.writeInt(local.getLocalVariableStartOffset());
+					records.writeInt(local.getLocalVariableTableIndex());
+				}
+			}
+		}
+
+		int[] namespaceIds = new int[namespaces.size()];
+
+		for (int i = 0; i < namespaces.size(); i++) {
+			namespaceIds[i] = strings.get(namespaces.get(i));
+		}
+
+		int[] propertyIds = new int[properties.size() * 2];
+		int propertyIndex = 0;
+
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			propertyIds[propertyIndex++] = strings.get(property.getKey());
+			propertyIds[propertyIndex++] = strings.get(property.getValue());
+		}
+
+		int metaPos = HEADER_SIZE;
+		int classOffsetsPos = metaPos + (namespaceIds.length + propertyIds.length) * 4;
+		int sortedPos = classOffsetsPos + classes.size() * 4;
+		int recordsPos = sortedPos + namespaces.size() * classes.size() * 4;
+		int stringOffsetsPos = recordsPos + records.size();
+		int stringDataPos = stringOffsetsPos + (strings.size() + 1) * 4;
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeLong(sourceSize);
+		data.writeLong(sourceModified);
+		data.write(sourceHash);
+		data.writeInt(tree.getMetadata().getMajorVersion());
+		data.writeInt(tree.getMetadata().getMinorVersion());
+		data.writeInt(namespaces.size());
+		data.writeInt(properties.size());
+		data.writeInt(strings.size());
+		data.writeInt(classes.size());
+		data.writeInt(stringOffsetsPos);
+		data.writeInt(stringDataPos);
+		data.writeInt(classOffsetsPos);
+		data.writeInt(sortedPos);
+		data.writeInt(metaPos);
+
+		for (int id : namespaceIds) {
+			data.writeInt(id);
+		}
+
+		for (int id : propertyIds) {
+			data.writeInt(id);
+		}
+
+		for (int offset : classOffsets) {
+			data.writeInt(recordsPos + offset);
+		}
+
+		for (String namespace : namespaces) {
+			Integer[] sorted = new Integer[classes.size()];
+
+			for (int i = 0; i < sorted.length; i++) {
+				sorted[i] = i;
+			}
+
+			Arrays.sort(sorted, Comparator.comparing(i -> nonNull(classes.get(i).getName(namespace))));
+
+			for (int i : sorted) {
+				data.writeInt(recordsPos + classOffsets[i]);
+			}
+		}
+
+		recordBytes.writeTo(data);
+		strings.write(data);
+		data.flush();
+	}
+
+	private static void writeMapped(DataOutputStream records, StringTable strings, List<String> namespaces, Mapped mapped) throws IOException {
+		for (String namespace : namespaces) {
+			records.writeInt(strings.get(mapped.getName(namespace)));
+		}
+
+		for (String namespace : namespaces) {
+			records.writeInt(strings.get(mapped.getRawName(namespace)));
+		}
+	}
+
+	private static String nonNull(@Nullable String string) {
+		return string == null ? "" : string;
+	}
+
+	@Nullable
+	private String string(int id) {
+		if (id == NONE) {
+			return null;
+		}
+
+		String string = strings[id];
+
+		if (string == null) {
+			int start = buffer.getInt(stringOffsetsPos + id * 4);
+			int end = buffer.getInt(stringOffsetsPos + (id + 1) * 4);
+			byte[] bytes = new byte[end - start];
+			ByteBuffer view = buffer.duplicate();
+			view.position(stringDataPos + start);
+			view.get(bytes);
+			strings[id] = string = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		return string;
+	}
+
+	/**
+	 * Finds a class by its name in any namespace using the sorted class arrays of the index.
+	 *
+	 * @param namespace the namespace of the name
+	 * @param name      the class name
+	 * @return the class, or null if there is no class with that name
+	 */
+	@Nullable
+	public ClassDef getClass(String namespace, String name) {
+		int namespaceIndex = namespaces.indexOf(namespace);
+
+		if (namespaceIndex < 0) {
+			return null;
+		}
+
+		int arrayPos = sortedPos + namespaceIndex * classCount * 4;
+		int low = 0;
+		int high = classCount - 1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int classPos = buffer.getInt(arrayPos + middle * 4);
+			int comparison = nonNull(string(buffer.getInt(classPos + namespaceIndex * 4))).compareTo(name);
+
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return new IndexedClassDef(classPos);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public TinyMetadata getMetadata() {
+		return metadata;
+	}
+
+	@Override
+	public Map<String, ClassDef> getDefaultNamespaceClassMap() {
+		return defaultNamespaceClassMap;
+	}
+
+	@Override
+	public Collection<ClassDef> getClasses() {
+		return new AbstractList<ClassDef>() {
+			@Override
+			public ClassDef get(int index) {
+				return new IndexedClassDef(buffer.getInt(classOffsetsPos + index * 4));
+			}
+
+			@Override
+			public int size() {
+				return classCount;
+			}
+		};
+	}
+
+	private static final class StringTable {
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<byte[]> values = new ArrayList<>();
+
+		int get(@Nullable String string) {
+			if (string == null) {
+				return NONE;
+			}
+
+			return ids.computeIfAbsent(string, s -> {
+				values.add(s.getBytes(StandardCharsets.UTF_8));
+				return values.size() - 1;
+			});
+		}
+
+		int size() {
+			return values.size();
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			int offset = 0;
+			out.writeInt(offset);
+
+			for (byte[] value : values) {
+				offset += value.length;
+				out.writeInt(offset);
+			}
+
+			for (byte[] value : values) {
+				out.write(value);
+			}
+		}
+	}
+
+	private static final class Metadata implements TinyMetadata {
+		private final int majorVersion;
+		private final int minorVersion;
+		private final List<String> namespaces;
+		private final Map<String, String> properties;
+
+		Metadata(int majorVersion, int minorVersion, List<String> namespaces, Map<String, String> properties) {
+			this.majorVersion = majorVersion;
+			this.minorVersion = minorVersion;
+			this.namespaces = namespaces;
+			this.properties = properties;
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return majorVersion;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return minorVersion;
+		}
+
+		@Override
+		public List<String> getNamespaces() {
+			return namespaces;
+		}
+
+		@Override
+		public Map<String, String> getProperties() {
+			return properties;
+		}
+	}
+
+	private final class DefaultNamespaceClassMap extends AbstractMap<String, ClassDef> {
+		@Override
+		public ClassDef get(Object key) {
+			return key instanceof String ? getClass(namespaces.get(0), (String) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return classCount;
+		}
+
+		@Override
+		public Set<Entry<String, ClassDef>> entrySet() {
+			return new AbstractSet<Entry<String, ClassDef>>() {
+				@Override
+				public Iterator<Entry<String, ClassDef>> iterator() {
+					Iterator<ClassDef> classes = getClasses().iterator();
+
+					return new Iterator<Entry<String, ClassDef>>() {
+						@Override
+						public boolean hasNext() {
+							return classes.hasNext();
+						}
+
+						@Override
+						public Entry<String, ClassDef> next() {
+							ClassDef classDef = classes.next();
+							return new SimpleImmutableEntry<>(classDef.getName(namespaces.get(0)), classDef);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return classCount;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Base for all views into the index. Every record starts with the names and raw names in all namespaces.
+	 */
+	private abstract class IndexedMapped implements Mapped {
+		final int pos;
+
+		IndexedMapped(int pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public String getName(String namespace) {
+			int index = namespaces.indexOf(namespace);
+			return index < 0 ? null : string(buffer.getInt(pos + index * 4));
+		}
+
+		@Override
+		public String getRawName(String namespace) {
+			int index = namespaces.indexOf(namespace);
+			return index < 0 ? null : string(buffer.getInt(pos + (namespaceCount + index) * 4));
+		}
+
+		@Override
+		public String getComment() {
+			return string(buffer.getInt(commentPos()));
+		}
+
+		int commentPos() {
+			return pos + namespaceCount * 8;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj != null && obj.getClass() == getClass() && ((IndexedMapped) obj).pos == pos;
+		}
+
+		@Override
+		public int hashCode() {
+			return pos;
+		}
+	}
+
+	private abstract class IndexedDescriptored extends IndexedMapped {
+		IndexedDescriptored(int pos) {
+			super(pos);
+		}
+
+		public String getDescriptor(String namespace) {
+			int index = namespaces.indexOf(namespace);
+			return index < 0 ? null : string(buffer.getInt(pos + (namespaceCount * 2 + index) * 4));
+		}
+
+		@Override
+		int commentPos() {
+			return pos + namespaceCount * 12;
+		}
+	}
+
+	private final class IndexedClassDef extends IndexedMapped implements ClassDef {
+		IndexedClassDef(int pos) {
+			super(pos);
+		}
+
+		private int fieldCount() {
+			return buffer.getInt(commentPos() + 4);
+		}
+
+		private int fieldsPos() {
+			return commentPos() + 12;
+		}
+
+		@Override
+		public Collection<FieldDef> getFields() {
+			int fieldsPos = fieldsPos();
+			int fieldSize = (namespaceCount * 3 + 1) * 4;
+
+			return new AbstractList<FieldDef>() {
+				@Override
+				public FieldDef get(int index) {
+					return new IndexedFieldDef(fieldsPos + index * fieldSize);
+				}
+
+				@Override
+				public int size() {
+					return fieldCount();
+				}
+			};
+		}
+
+		@Override
+		public Collection<MethodDef> getMethods() {
+			int methodCount = buffer.getInt(commentPos() + 8);
+			List<MethodDef> methods = new ArrayList<>(methodCount);
+			int methodPos = fieldsPos() + fieldCount() * (namespaceCount * 3 + 1) * 4;
+
+			for (int i = 0; i < methodCount; i++) {
+				IndexedMethodDef method = new IndexedMethodDef(methodPos);
+				methods.add(method);
+				methodPos = method.endPos();
+			}
+
+			return methods;
+		}
+	}
+
+	private final class IndexedFieldDef extends IndexedDescriptored implements FieldDef {
+		IndexedFieldDef(int pos) {
+			super(pos);
+		}
+	}
+
+	private final class IndexedMethodDef extends IndexedDescriptored implements MethodDef {
+		IndexedMethodDef(int pos) {
+			super(pos);
+		}
+
+		private int parameterSize() {
+			return (namespaceCount * 2 + 2) * 4;
+		}
+
+		private int localSize() {
+			return (namespaceCount * 2 + 4) * 4;
+		}
+
+		private int localsCountPos() {
+			int parametersPos = commentPos() + 4;
+			return parametersPos + 4 + buffer.getInt(parametersPos) * parameterSize();
+		}
+
+		int endPos() {
+			int localsPos = localsCountPos();
+			return localsPos + 4 + buffer.getInt(localsPos) * localSize();
+		}
+
+		@Override
+		public Collection<ParameterDef> getParameters() {
+			int parametersPos = commentPos() + 4;
+			int count = buffer.getInt(parametersPos);
+			List<ParameterDef> parameters = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				parameters.add(new IndexedParameterDef(parametersPos + 4 + i * parameterSize()));
+			}
+
+			return parameters;
+		}
+
+		@Override
+		public Collection<LocalVariableDef> getLocalVariables() {
+			int localsPos = localsCountPos();
+			int count = buffer.getInt(localsPos);
+			List<LocalVariableDef> locals = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				locals.add(new IndexedLocalVariableDef(localsPos + 4 + i * localSize()));
+			}
+
+			return locals;
+		}
+	}
+
+	private final class IndexedParameterDef extends IndexedMapped implements ParameterDef {
+		IndexedParameterDef(int pos) {
+			super(pos);
+		}
+
+		@Override
+		public int getLocalVariableIndex() {
+			return buffer.getInt(commentPos() + 4);
+		}
+	}
+
+	private final class IndexedLocalVariableDef extends IndexedMapped implements LocalVariableDef {
+		IndexedLocalVariableDef(int pos) {
+			super(pos);
+		}
+
+		@Override
+		public int getLocalVariableIndex() {
+			return buffer.getInt(commentPos() + 4);
+		}
+
+		@Override
+		public int getLocalVariableStartOffset() {
+			return buffer.getInt(commentPos() + 8);
+		}
+
+		@Override
+		public int getLocalVariableTableIndex() {
+			return buffer.getInt(commentPos() + 12);
+		}
+	}
+}
@@ -24,16 +24,13 @@
 
 package net.fabricmc.loom.configuration.providers.mappings;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
 import net.fabricmc.loom.util.StaticPathWatcher;
-import net.fabricmc.mapping.tree.TinyMappingFactory;
 import net.fabricmc.mapping.tree.TinyTree;
 
 public final class MappingsCache {
@@ -54,12 +51,11 @@ public final class MappingsCache {
 		if (ref != null && ref.get() != null) {
 			return ref.get();
 		} else {
-			try (BufferedReader reader = Files.newBufferedReader(mappingsPath)) {
-				TinyTree mappings = TinyMappingFactory.loadWithDetection(reader);
-				ref = new SoftReference<>(mappings);
-				mappingsCache.put(mappingsPath, ref);
-				return mappings;
-			}
+			// Backed by an index next to the mappings, so reloading after the reference was cleared is cheap
+			TinyTree mappings = IndexedTinyTree.load(mappingsPath);
+			ref = new SoftReference<>(mappings);
+			mappingsCache.put(mappingsPath, ref);
+			return mappings;
 		}
 	}
 
@@ -0,0 +1,199 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.configuration.providers.mappings;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * Hash based lookups of classes and members by their names in a namespace.
+ * The maps for a namespace are built the first time that namespace is queried.
+ *
+ * <p>Lookups return the first matching element in the iteration order of the tree,
+ * like a linear search over the tree would.
+ */
+public final class MappingsIndex {
+	// The index references the mappings, so it is only held softly to let both be collected together
+	private static final Map<TinyTree, SoftReference<MappingsIndex>> INDICES = new WeakHashMap<>();
+
+	private final TinyTree mappings;
+	private final Map<String, Map<String, ClassDef>> classes = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, MethodDef>> methods = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, FieldDef>> fields = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, FieldDef>> fieldsWithDescriptor = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, MethodDef>> methodsByName = new ConcurrentHashMap<>();
+	private final Map<String, Map<String, FieldDef>> fieldsByName = new ConcurrentHashMap<>();
+
+	private MappingsIndex(TinyTree mappings) {
+		this.mappings = mappings;
+	}
+
+	/**
+	 * Gets the index of the mappings, the index is shared for as long as the mappings are loaded.
+	 */
+	public static synchronized MappingsIndex of(TinyTree mappings) {
+		SoftReference<MappingsIndex> ref = INDICES.get(mappings);
+		MappingsIndex index = ref != null ? ref.get() : null;
+
+		if (index == null) {
+			index = new MappingsIndex(mappings);
+			INDICES.put(mappings, new SoftReference<>(index));
+		}
+
+		return index;
+	}
+
+	@Nullable
+	public ClassDef getClass(String namespace, String name) {
+		return classes.computeIfAbsent(namespace, this::indexClasses).get(name);
+	}
+
+	/**
+	 * Maps a class name between namespaces.
+	 *
+	 * @return the mapped name, or the original name if the class isn't mapped
+	 */
+	public String mapClass(String from, String to, String name) {
+		ClassDef classDef = getClass(from, name);
+		return classDef != null ? classDef.getName(to) : name;
+	}
+
+	@Nullable
+	public MethodDef getMethod(String namespace, String owner, String name, String descriptor) {
+		return methods.computeIfAbsent(namespace, this::indexMethods).get(owner + '.' + name + descriptor);
+	}
+
+	@Nullable
+	public FieldDef getField(String namespace, String owner, String name) {
+		return fields.computeIfAbsent(namespace, this::indexFields).get(owner + '.' + name);
+	}
+
+	@Nullable
+	public FieldDef getField(String namespace, String owner, String name, String descriptor) {
+		return fieldsWithDescriptor.computeIfAbsent(namespace, this::indexFieldsWithDescriptor).get(owner + '.' + name + ':' + descriptor);
+	}
+
+	/**
+	 * Finds a method by its name and descriptor in any class, for references that don't know their owner.
+	 */
+	@Nullable
+	public MethodDef findMethod(String namespace, String name, String descriptor) {
+		return methodsByName.computeIfAbsent(namespace, this::indexMethodsByName).get(name + descriptor);
+	}
+
+	/**
+	 * Finds a field by its name and descriptor in any class, for references that don't know their owner.
+	 */
+	@Nullable
+	public FieldDef findField(String namespace, String name, String descriptor) {
+		return fieldsByName.computeIfAbsent(namespace, this::indexFieldsByName).get(name + ':' + descriptor);
+	}
+
+	private Map<String, ClassDef> indexClasses(String namespace) {
+		Map<String, ClassDef> index = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			index.putIfAbsent(classDef.getName(namespace), classDef);
+		}
+
+		return index;
+	}
+
+	private Map<String, MethodDef> indexMethods(String namespace) {
+		Map<String, MethodDef> index = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			String owner = classDef.getName(namespace);
+
+			for (MethodDef method : classDef.getMethods()) {
+				index.putIfAbsent(owner + '.' + method.getName(namespace) + method.getDescriptor(namespace), method);
+			}
+		}
+
+		return index;
+	}
+
+	private Map<String, FieldDef> indexFields(String namespace) {
+		Map<String, FieldDef> index = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			String owner = classDef.getName(namespace);
+
+			for (FieldDef field : classDef.getFields()) {
+				index.putIfAbsent(owner + '.' + field.getName(namespace), field);
+			}
+		}
+
+		return index;
+	}
+
+	private Map<String, FieldDef> indexFieldsWithDescriptor(String namespace) {
+		Map<String, FieldDef> index = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			String owner = classDef.getName(namespace);
+
+			for (FieldDef field : classDef.getFields()) {
+				index.putIfAbsent(owner + '.' + field.getName(namespace) + ':' + field.getDescriptor(namespace), field);
+			}
+		}
+
+		return index;
+	}
+
+	private Map<String, MethodDef> indexMethodsByName(String namespace) {
+		Map<String, MethodDef> index = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			for (MethodDef method : classDef.getMethods()) {
+				index.putIfAbsent(method.getName(namespace) + method.getDescriptor(namespace), method);
+			}
+		}
+
+		return index;
+	}
+
+	private Map<String, FieldDef> indexFieldsByName(String namespace) {
+		Map<String, FieldDef> index = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			for (FieldDef field : classDef.getFields()) {
+				index.putIfAbsent(field.getName(namespace) + ':' + field.getDescriptor(namespace), field);
+			}
+		}
+
+		return index;
+	}
+}
@@ -39,10 +39,12 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.net.UrlEscapers;
 import com.google.gson.JsonObject;
 import dev.architectury.mappingslayers.api.utils.MappingsModificationUtils;
@@ -62,7 +64,11 @@ import net.fabricmc.loom.configuration.accesswidener.AccessWidenerJarProcessor;
 import net.fabricmc.loom.configuration.processors.JarProcessorManager;
 import net.fabricmc.loom.configuration.processors.MinecraftProcessedProvider;
 import net.fabricmc.loom.configuration.providers.MinecraftProvider;
+import net.fabricmc.loom.configuration.providers.forge.ForgeUniversalProvider;
+import net.fabricmc.loom.configuration.providers.forge.ForgeUserdevProvider;
+import net.fabricmc.loom.configuration.providers.forge.McpConfigProvider;
 import net.fabricmc.loom.configuration.providers.forge.MinecraftPatchedProvider;
+import net.fabricmc.loom.configuration.providers.forge.PatchProvider;
 import net.fabricmc.loom.configuration.providers.forge.SrgProvider;
 import net.fabricmc.loom.configuration.providers.minecraft.MinecraftMappedProvider;
 import net.fabricmc.loom.util.Constants;
@@ -102,6 +108,7 @@ public class MappingsProvider extends DependencyProvider {
 	public Path tinyMappingsWithSrg;
 	public File mixinTinyMappingsWithSrg; // FORGE: The mixin mappings have srg names in intermediary.
 	public File srgToNamedSrg; // FORGE: srg to named in srg file format
+	public File srgToNamedNames; // FORGE: srg to named name tables for the runtime naming service
 
 	private File unpickDefinitionsFile;
 	private boolean hasUnpickDefinitions;
@@ -191,6 +198,7 @@ public class MappingsProvider extends DependencyProvider {
 		tinyMappingsWithSrg = mappingsDir.resolve(removeSuffix + "-srg.tiny");
 		mixinTinyMappingsWithSrg = mappingsDir.resolve(removeSuffix + "-mixin-srg.tiny").toFile();
 		srgToNamedSrg = mappingsDir.resolve(removeSuffix + "-srg-named.srg").toFile();
+		srgToNamedNames = mappingsDir.resolve(removeSuffix + "-srg-named.names").toFile();
 
 		if (!tinyMappings.exists() || isRefreshDeps()) {
 			storeMappings(getProject(), minecraftProvider, mappingsJar.toPath(), postPopulationScheduler);
@@ -244,6 +252,10 @@ public class MappingsProvider extends DependencyProvider {
 			if (!srgToNamedSrg.exists() || isRefreshDeps()) {
 				SrgNamedWriter.writeTo(getProject().getLogger(), srgToNamedSrg.toPath(), getMappingsWithSrg(), "srg", "named");
 			}
+
+			if (!srgToNamedNames.exists() || isRefreshDeps()) {
+				SrgNamedWriter.writeNamesTo(srgToNamedNames.toPath(), getMappingsWithSrg(), "srg", "named");
+			}
 		}
 
 		addDependency(tinyMappingsJar, Constants.Configurations.MAPPINGS_FINAL);
@@ -496,6 +508,11 @@ public class MappingsProvider extends DependencyProvider {
 		return Constants.Configurations.MAPPINGS;
 	}
 
+	@Override
+	public Set<Class<? extends DependencyProvider>> getRequiredProviders() {
+		return ImmutableSet.of(MinecraftProvider.class, SrgProvider.class, ForgeUserdevProvider.class, McpConfigProvider.class, PatchProvider.class, ForgeUniversalProvider.class);
+	}
+
 	public Path getMappingsDir() {
 		return mappingsDir;
 	}
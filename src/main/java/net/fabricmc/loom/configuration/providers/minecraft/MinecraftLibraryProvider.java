@@ -42,7 +42,7 @@ public class MinecraftLibraryProvider {
 
 		for (MinecraftVersionMeta.Library library : versionInfo.getLibraries()) {
 			if (library.isValidForOS() && !library.hasNatives() && library.getArtifact() != null) {
-				project.getDependencies().add(Constants.Configurations.MINECRAFT_DEPENDENCIES, project.getDependencies().module(library.getName()));
+				minecraftProvider.changeModel(() -> project.getDependencies().add(Constants.Configurations.MINECRAFT_DEPENDENCIES, project.getDependencies().module(library.getName())));
 			}
 		}
 	}
@@ -76,6 +76,12 @@ public class MinecraftMappedProvider extends DependencyProvider {
 			.put("javax/annotation/concurrent/Immutable", "org/jetbrains/annotations/Unmodifiable")
 			.build();
 
+	/**
+	 * Only one project at a time may remap Minecraft in low memory mode, so that concurrently configuring projects
+	 * don't each hold a copy of the jar on the heap.
+	 */
+	private static final Object LOW_MEMORY_REMAP_LOCK = new Object();
+
 	private File inputJar;
 	private File minecraftMappedJar;
 	private File minecraftIntermediaryJar;
@@ -115,7 +121,13 @@ public class MinecraftMappedProvider extends DependencyProvider {
 			}
 
 			try {
-				mapMinecraftJar();
+				if (getExtension().lowMemoryMinecraftRemap) {
+					synchronized (LOW_MEMORY_REMAP_LOCK) {
+						mapMinecraftJar();
+					}
+				} else {
+					mapMinecraftJar();
+				}
 			} catch (Throwable t) {
 				// Cleanup some some things that may be in a bad state now
 				DownloadUtil.delete(minecraftMappedJar);
@@ -167,27 +179,8 @@ public class MinecraftMappedProvider extends DependencyProvider {
 		Files.deleteIfExists(tmpAssets);
 		tmpAssets.toFile().deleteOnExit();
 
-		List<byte[]> inputByteList = new ArrayList<>();
-
-		try (FileSystemUtil.FileSystemDelegate inputFs = FileSystemUtil.getJarFileSystem(input, false)) {
-			ThreadingUtils.TaskCompleter taskCompleter = ThreadingUtils.taskCompleter();
-
-			for (Path path : (Iterable<? extends Path>) Files.walk(inputFs.get().getPath("/"))::iterator) {
-				if (Files.isRegularFile(path)) {
-					if (path.getFileName().toString().endsWith(".class")) {
-						taskCompleter.add(() -> {
-							byte[] bytes = Files.readAllBytes(path);
-
-							synchronized (inputByteList) {
-								inputByteList.add(bytes);
-							}
-						});
-					}
-				}
-			}
-
-			taskCompleter.complete();
-		}
+		// In low memory mode TinyRemapper reads the jar itself on every pass, so only its own copy is alive at a time
+		byte[][] inputBytes = getExtension().lowMemoryMinecraftRemap ? null : readClasses(input);
 
 		try (OutputConsumerPath tmpAssetsPath = new OutputConsumerPath.Builder(tmpAssets).assumeArchive(true).build()) {
 			if (getExtension().isForge()) {
@@ -197,14 +190,17 @@ public class MinecraftMappedProvider extends DependencyProvider {
 			}
 		}
 
-		byte[][] inputBytes = inputByteList.toArray(new byte[0][0]);
-
 		for (String toM : getExtension().isForge() ? Arrays.asList("intermediary", "srg", "named") : Arrays.asList("intermediary", "named")) {
 			Path output = "named".equals(toM) ? outputMapped : "srg".equals(toM) ? outputSrg : outputIntermediary;
 			Stopwatch stopwatch = Stopwatch.createStarted();
 			getProject().getLogger().lifecycle(":remapping minecraft (TinyRemapper, " + fromM + " -> " + toM + ")");
 
-			remapper.readInputs(inputBytes);
+			if (inputBytes != null) {
+				remapper.readInputs(inputBytes);
+			} else {
+				remapper.readInputs(input);
+			}
+
 			remapper.replaceMappings(getMappings(input, fromM, toM));
 			OutputRemappingHandler.remap(remapper, tmpAssets, output);
 
@@ -250,6 +246,32 @@ public class MinecraftMappedProvider extends DependencyProvider {
 		remapper.finish();
 	}
 
+	private static byte[][] readClasses(Path input) throws IOException {
+		List<byte[]> inputByteList = new ArrayList<>();
+
+		try (FileSystemUtil.FileSystemDelegate inputFs = FileSystemUtil.getJarFileSystem(input, false)) {
+			ThreadingUtils.TaskCompleter taskCompleter = ThreadingUtils.taskCompleter();
+
+			for (Path path : (Iterable<? extends Path>) Files.walk(inputFs.get().getPath("/"))::iterator) {
+				if (Files.isRegularFile(path)) {
+					if (path.getFileName().toString().endsWith(".class")) {
+						taskCompleter.add(() -> {
+							byte[] bytes = Files.readAllBytes(path);
+
+							synchronized (inputByteList) {
+								inputByteList.add(bytes);
+							}
+						});
+					}
+				}
+			}
+
+			taskCompleter.complete();
+		}
+
+		return inputByteList.toArray(new byte[0][0]);
+	}
+
 	public TinyRemapper getTinyRemapper() throws IOException {
 		TinyRemapper.Builder builder = TinyRemapper.newRemapper()
 				.renameInvalidLocals(true)
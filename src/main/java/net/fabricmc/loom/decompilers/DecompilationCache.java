@@ -0,0 +1,335 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.Project;
+
+import net.fabricmc.loom.LoomGradleExtension;
+import net.fabricmc.loom.api.decompilers.DecompilationMetadata;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsCache;
+import net.fabricmc.loom.util.CacheCleanup;
+import net.fabricmc.loom.util.Checksum;
+import net.fabricmc.loom.util.ThreadingUtils;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+
+/**
+ * A content addressed cache of decompiled classes in the Gradle user home, shared by every project. Each top level
+ * class is keyed by the bytes of it and its nest members, the javadoc the mappings give them and the decompiler with
+ * the hash of its jar and its options, so a class is only decompiled again once any of them change. Entries unused for a month are
+ * deleted, see {@link CacheCleanup}.
+ *
+ * <p>Only the classes missing from the cache are passed to the decompiler, with the full jar added to its libraries,
+ * and the result is merged with the cached sources and line mappings.
+ */
+public class DecompilationCache {
+	private static final int VERSION = 1;
+	private static final String LINEMAP_ENTRY = "linemap.lmap";
+
+	private final Project project;
+	private final Path directory;
+	private final String decompiler;
+	private final String implementation;
+	private final String options;
+
+	/**
+	 * @param implementation a class of the decompiler, whose jar is hashed so updating the decompiler invalidates the cache
+	 * @param options        the options given to the decompiler that change its output
+	 */
+	public DecompilationCache(Project project, String decompiler, Class<?> implementation, Map<String, ?> options) {
+		this.project = project;
+		this.directory = project.getExtensions().getByType(LoomGradleExtension.class).getUserCache().toPath().resolve("decompiled");
+		this.decompiler = decompiler;
+		this.implementation = hashImplementation(implementation);
+		this.options = new TreeMap<>(options).toString();
+	}
+
+	public interface Decompilation {
+		void decompile(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData) throws IOException;
+	}
+
+	public void decompile(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData, Decompilation decompilation) throws IOException {
+		CacheCleanup.cleanup(directory, 2, path -> true);
+		Map<String, String> keys = new TreeMap<>();
+
+		DecompiledClassIndex.hashClasses(compiledJar, MappingsCache.INSTANCE.get(metaData.javaDocs), true).forEach((name, hash) -> {
+			keys.put(name, Hashing.sha256().newHasher()
+					.putInt(VERSION)
+					.putString(decompiler, StandardCharsets.UTF_8).putByte((byte) 0)
+					.putString(implementation, StandardCharsets.UTF_8).putByte((byte) 0)
+					.putString(options, StandardCharsets.UTF_8).putByte((byte) 0)
+					.putString(hash, StandardCharsets.UTF_8)
+					.hash().toString());
+		});
+
+		Map<String, CachedClass> cached = new TreeMap<>();
+
+		for (CachedClass cachedClass : ThreadingUtils.get(keys.values(), this::read)) {
+			if (cachedClass != null) {
+				cached.put(cachedClass.name, cachedClass);
+			}
+		}
+
+		Set<String> missing = new HashSet<>(keys.keySet());
+		missing.removeAll(cached.keySet());
+		project.getLogger().lifecycle(":found {} of {} classes in the decompilation cache", cached.size(), keys.size());
+
+		if (cached.isEmpty()) {
+			decompilation.decompile(compiledJar, sourcesDestination, linemapDestination, metaData);
+			store(keys, sourcesDestination, linemapDestination);
+			return;
+		}
+
+		Map<String, byte[]> sources = new LinkedHashMap<>();
+		StringBuilder linemap = new StringBuilder();
+
+		if (!missing.isEmpty()) {
+			Path partialInput = Files.createTempFile(sourcesDestination.toAbsolutePath().getParent(), "partial-input", ".jar");
+			Path partialSources = Files.createTempFile(sourcesDestination.toAbsolutePath().getParent(), "partial-sources", ".jar");
+			Path partialLinemap = Files.createTempFile(sourcesDestination.toAbsolutePath().getParent(), "partial-sources", ".lmap");
+
+			try {
+				Files.delete(partialLinemap);
+				DecompiledClassIndex.writeClasses(compiledJar, partialInput, missing);
+
+				// The rest of the jar is still needed to resolve the missing classes against
+				Set<Path> libraries = new HashSet<>(metaData.libraries);
+				libraries.add(compiledJar);
+				decompilation.decompile(partialInput, partialSources, partialLinemap, new DecompilationMetadata(metaData.numberOfThreads, metaData.javaDocs, libraries));
+				store(keys, partialSources, partialLinemap);
+
+				readEntries(partialSources, sources::put);
+
+				if (Files.exists(partialLinemap)) {
+					linemap.append(new String(Files.readAllBytes(partialLinemap), StandardCharsets.UTF_8));
+				}
+			} finally {
+				Files.deleteIfExists(partialInput);
+				Files.deleteIfExists(partialSources);
+				Files.deleteIfExists(partialLinemap);
+			}
+		} else {
+			sources.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+		}
+
+		for (CachedClass cachedClass : cached.values()) {
+			sources.putAll(cachedClass.sources);
+
+			if (cachedClass.linemap != null) {
+				linemap.append(cachedClass.linemap);
+			}
+		}
+
+		ZipReprocessorUtil.writeZip(sourcesDestination.toFile(), sources, false, true);
+
+		if (linemap.length() > 0) {
+			Files.write(linemapDestination, linemap.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Stores the sources and line mappings of every decompiled class under its key.
+	 */
+	private void store(Map<String, String> keys, Path sources, Path linemap) throws IOException {
+		Map<String, Map<String, byte[]>> classSources = new TreeMap<>();
+		Map<String, StringBuilder> classLinemaps = new TreeMap<>();
+
+		readEntries(sources, (name, bytes) -> {
+			if (name.endsWith(".java")) {
+				String topLevelClass = DecompiledClassIndex.getTopLevelClass(name.substring(0, name.length() - 5));
+
+				if (keys.containsKey(topLevelClass)) {
+					classSources.computeIfAbsent(topLevelClass, s -> new LinkedHashMap<>()).put(name, bytes);
+				}
+			}
+		});
+
+		if (Files.exists(linemap)) {
+			StringBuilder current = null;
+
+			for (String line : Files.readAllLines(linemap, StandardCharsets.UTF_8)) {
+				if (!line.isEmpty() && line.charAt(0) != '\t') {
+					current = classLinemaps.computeIfAbsent(DecompiledClassIndex.getTopLevelClass(line.split("\t")[0]), s -> new StringBuilder());
+				}
+
+				if (current != null) {
+					current.append(line).append('\n');
+				}
+			}
+		}
+
+		ThreadingUtils.run(classSources.entrySet(), entry -> {
+			StringBuilder classLinemap = classLinemaps.get(entry.getKey());
+			write(keys.get(entry.getKey()), new CachedClass(entry.getKey(), entry.getValue(), classLinemap != null ? classLinemap.toString() : null));
+		});
+	}
+
+	private CachedClass read(String key) {
+		Path path = getPath(key);
+
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		String name = null;
+		Map<String, byte[]> sources = new LinkedHashMap<>();
+		String linemap = null;
+
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(path))) {
+			ZipEntry entry;
+
+			while ((entry = in.getNextEntry()) != null) {
+				byte[] bytes = ByteStreams.toByteArray(in);
+
+				if (entry.getName().equals(LINEMAP_ENTRY)) {
+					linemap = new String(bytes, StandardCharsets.UTF_8);
+				} else {
+					name = DecompiledClassIndex.getTopLevelClass(entry.getName().substring(0, entry.getName().length() - 5));
+					sources.put(entry.getName(), bytes);
+				}
+			}
+		} catch (IOException e) {
+			// A broken entry is simply decompiled again
+			return null;
+		}
+
+		CacheCleanup.markUsed(path);
+		return name != null ? new CachedClass(name, sources, linemap) : null;
+	}
+
+	private void write(String key, CachedClass cachedClass) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+			for (Map.Entry<String, byte[]> entry : cachedClass.sources.entrySet()) {
+				out.putNextEntry(new ZipEntry(entry.getKey()));
+				out.write(entry.getValue());
+				out.closeEntry();
+			}
+
+			if (cachedClass.linemap != null) {
+				out.putNextEntry(new ZipEntry(LINEMAP_ENTRY));
+				out.write(cachedClass.linemap.getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+
+		// Written next to the entry first, so other builds never see half of it
+		Path path = getPath(key);
+		Files.createDirectories(path.getParent());
+		Path tempPath = Files.createTempFile(path.getParent(), key, ".tmp");
+
+		try {
+			try (OutputStream out = Files.newOutputStream(tempPath)) {
+				bytes.writeTo(out);
+			}
+
+			ZipReprocessorUtil.moveReplacing(tempPath, path);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * Hashes the jar a class was loaded from, or falls back to its declared version when it wasn't loaded from a jar.
+	 */
+	public static String hashImplementation(Class<?> implementation) {
+		CodeSource codeSource = implementation.getProtectionDomain().getCodeSource();
+
+		if (codeSource != null) {
+			try {
+				File jar = new File(codeSource.getLocation().toURI());
+
+				if (jar.isFile()) {
+					return HashCode.fromBytes(Checksum.sha256(jar)).toString();
+				}
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// Not loaded from a local jar, fall back to the version it declares
+			}
+		}
+
+		Package pkg = implementation.getPackage();
+		return implementation.getName() + ":" + (pkg != null ? pkg.getImplementationVersion() : null);
+	}
+
+	private Path getPath(String key) {
+		return directory.resolve(key.substring(0, 2)).resolve(key + ".zip");
+	}
+
+	private static void readEntries(Path jar, EntryConsumer consumer) throws IOException {
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+
+				if (!entry.isDirectory()) {
+					try (InputStream in = zipFile.getInputStream(entry)) {
+						consumer.accept(entry.getName(), ByteStreams.toByteArray(in));
+					}
+				}
+			}
+		}
+	}
+
+	private interface EntryConsumer {
+		void accept(String name, byte[] bytes) throws IOException;
+	}
+
+	private static class CachedClass {
+		private final String name;
+		private final Map<String, byte[]> sources;
+		private final String linemap;
+
+		private CachedClass(String name, Map<String, byte[]> sources, String linemap) {
+			this.name = name;
+			this.sources = sources;
+			this.linemap = linemap;
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonParseException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import net.fabricmc.loom.LoomGradlePlugin;
+import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.ThreadingUtils;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.ParameterDef;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * Records what the sources of every top level class were decompiled from, so that only the classes that changed
+ * since the last decompile have to be decompiled again. Each top level class is hashed together with its nest
+ * members and the javadoc the mappings provide for them.
+ *
+ * <p>Line numbers are left out of the hashes, the input jar may be the same jar that is line mapped after decompiling.
+ */
+public class DecompiledClassIndex {
+	private static final int VERSION = 2;
+
+	private final int version;
+	private final String decompiler;
+	private final String implementation;
+	private final Map<String, String> classes;
+	private String runtimeJar;
+
+	private DecompiledClassIndex(String decompiler, String implementation, Map<String, String> classes) {
+		this.version = VERSION;
+		this.decompiler = decompiler;
+		this.implementation = implementation;
+		this.classes = classes;
+	}
+
+	/**
+	 * Hashes the classes of a jar, grouped by their top level class.
+	 *
+	 * @param implementation the hash of the decompiler's implementation, see {@link DecompilationCache#hashImplementation(Class)}
+	 */
+	public static DecompiledClassIndex create(String decompiler, String implementation, Path jar, TinyTree mappings) throws IOException {
+		return new DecompiledClassIndex(decompiler, implementation, hashClasses(jar, mappings, false));
+	}
+
+	/**
+	 * Hashes every top level class of a jar together with its nest members and their javadoc.
+	 *
+	 * @param lineNumbers whether line numbers are part of the hash
+	 * @return the hashes by top level class name
+	 */
+	public static Map<String, String> hashClasses(Path jar, TinyTree mappings, boolean lineNumbers) throws IOException {
+		List<byte[]> classFiles = new ArrayList<>();
+
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+
+				if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+					try (InputStream in = zipFile.getInputStream(entry)) {
+						classFiles.add(ByteStreams.toByteArray(in));
+					}
+				}
+			}
+		}
+
+		List<ClassHash> classHashes = ThreadingUtils.get(classFiles, bytes -> hashClass(bytes, lineNumbers));
+		Map<String, String> topLevelClasses = new HashMap<>();
+		Map<String, SortedMap<String, String>> groups = new HashMap<>();
+
+		for (ClassHash classHash : classHashes) {
+			topLevelClasses.put(classHash.name, classHash.topLevelClass);
+			groups.computeIfAbsent(classHash.topLevelClass, s -> new TreeMap<>()).put(classHash.name, classHash.hash);
+		}
+
+		Map<String, Hasher> javadocs = new HashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			String name = classDef.getName("named");
+			String topLevelClass = topLevelClasses.getOrDefault(name, getTopLevelClass(name));
+
+			if (groups.containsKey(topLevelClass)) {
+				hashJavadoc(javadocs.computeIfAbsent(topLevelClass, s -> Hashing.sha256().newHasher()), name, classDef);
+			}
+		}
+
+		Map<String, String> classes = new TreeMap<>();
+
+		groups.forEach((topLevelClass, members) -> {
+			Hasher hasher = Hashing.sha256().newHasher();
+			members.forEach((name, hash) -> hasher.putString(name, StandardCharsets.UTF_8).putByte((byte) 0).putString(hash, StandardCharsets.UTF_8));
+			Hasher javadoc = javadocs.get(topLevelClass);
+			hasher.putString(javadoc != null ? javadoc.hash().toString() : "", StandardCharsets.UTF_8);
+			classes.put(topLevelClass, hasher.hash().toString());
+		});
+
+		return classes;
+	}
+
+	/**
+	 * Copies the given top level classes and their nest members from one jar into a new one.
+	 */
+	public static void writeClasses(Path inputJar, Path outputJar, Set<String> classes) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(inputJar.toFile())) {
+			Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+
+			while (zipEntries.hasMoreElements()) {
+				ZipEntry entry = zipEntries.nextElement();
+
+				if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+					try (InputStream in = zipFile.getInputStream(entry)) {
+						byte[] bytes = ByteStreams.toByteArray(in);
+
+						if (classes.contains(getTopLevelClass(new ClassReader(bytes)))) {
+							entries.put(entry.getName(), bytes);
+						}
+					}
+				}
+			}
+		}
+
+		ZipReprocessorUtil.writeZip(outputJar.toFile(), entries, false, true);
+	}
+
+	public static DecompiledClassIndex read(Path path) {
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			DecompiledClassIndex index = LoomGradlePlugin.GSON.fromJson(reader, DecompiledClassIndex.class);
+			return index != null && index.version == VERSION && index.classes != null ? index : null;
+		} catch (IOException | JsonParseException e) {
+			return null;
+		}
+	}
+
+	public void write(Path path) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			LoomGradlePlugin.GSON.toJson(this, writer);
+		}
+	}
+
+	/**
+	 * Whether the sources described by the given index can be patched to match this one.
+	 */
+	public boolean canPatch(DecompiledClassIndex previous) {
+		return previous != null && Objects.equals(decompiler, previous.decompiler) && Objects.equals(implementation, previous.implementation);
+	}
+
+	/**
+	 * The top level classes that were added or changed since the given index.
+	 */
+	public Set<String> getChangedClasses(DecompiledClassIndex previous) {
+		Set<String> changed = new HashSet<>();
+
+		classes.forEach((name, hash) -> {
+			if (!hash.equals(previous.classes.get(name))) {
+				changed.add(name);
+			}
+		});
+
+		return changed;
+	}
+
+	/**
+	 * The top level classes that no longer exist since the given index.
+	 */
+	public Set<String> getRemovedClasses(DecompiledClassIndex previous) {
+		Set<String> removed = new HashSet<>(previous.classes.keySet());
+		removed.removeAll(classes.keySet());
+		return removed;
+	}
+
+	public int size() {
+		return classes.size();
+	}
+
+	/**
+	 * The size and modification time of the runtime jar after it was line mapped with these sources.
+	 */
+	public String getRuntimeJar() {
+		return runtimeJar;
+	}
+
+	public void setRuntimeJar(String runtimeJar) {
+		this.runtimeJar = runtimeJar;
+	}
+
+	/**
+	 * Finds the top level class of a class or source file by its name, the same way the line map groups classes.
+	 */
+	public static String getTopLevelClass(String name) {
+		int dollarPos = name.indexOf('$');
+		return dollarPos >= 0 ? name.substring(0, dollarPos) : name;
+	}
+
+	private static String getTopLevelClass(ClassReader reader) {
+		String[] nestHost = new String[1];
+
+		reader.accept(new ClassVisitor(Constants.ASM_VERSION) {
+			@Override
+			public void visitNestHost(String host) {
+				nestHost[0] = host;
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		return nestHost[0] != null ? nestHost[0] : getTopLevelClass(reader.getClassName());
+	}
+
+	private static ClassHash hashClass(byte[] bytes, boolean lineNumbers) {
+		ClassReader reader = new ClassReader(bytes);
+		String hash;
+
+		if (lineNumbers) {
+			hash = Hashing.sha256().hashBytes(bytes).toString();
+		} else {
+			ClassWriter writer = new ClassWriter(0);
+
+			reader.accept(new ClassVisitor(Constants.ASM_VERSION, writer) {
+				@Override
+				public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+					return new MethodVisitor(api, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+						@Override
+						public void visitLineNumber(int line, Label start) {
+						}
+					};
+				}
+			}, 0);
+
+			hash = Hashing.sha256().hashBytes(writer.toByteArray()).toString();
+		}
+
+		return new ClassHash(reader.getClassName(), getTopLevelClass(reader), hash);
+	}
+
+	private static void hashJavadoc(Hasher hasher, String name, ClassDef classDef) {
+		hasher.putChar('C').putString(name, StandardCharsets.UTF_8).putByte((byte) 0);
+		hasher.putString(Objects.toString(classDef.getComment()), StandardCharsets.UTF_8).putByte((byte) 0);
+
+		for (FieldDef fieldDef : classDef.getFields()) {
+			if (fieldDef.getComment() != null) {
+				hasher.putChar('F').putString(fieldDef.getName("named") + fieldDef.getDescriptor("named"), StandardCharsets.UTF_8).putByte((byte) 0);
+				hasher.putString(fieldDef.getComment(), StandardCharsets.UTF_8).putByte((byte) 0);
+			}
+		}
+
+		for (MethodDef methodDef : classDef.getMethods()) {
+			hasher.putChar('M').putString(methodDef.getName("named") + methodDef.getDescriptor("named"), StandardCharsets.UTF_8).putByte((byte) 0);
+			hasher.putString(Objects.toString(methodDef.getComment()), StandardCharsets.UTF_8).putByte((byte) 0);
+
+			for (ParameterDef parameterDef : methodDef.getParameters()) {
+				if (parameterDef.getComment() != null) {
+					hasher.putInt(parameterDef.getLocalVariableIndex()).putString(parameterDef.getName("named"), StandardCharsets.UTF_8).putByte((byte) 0);
+					hasher.putString(parameterDef.getComment(), StandardCharsets.UTF_8).putByte((byte) 0);
+				}
+			}
+		}
+	}
+
+	private static class ClassHash {
+		private final String name;
+		private final String topLevelClass;
+		private final String hash;
+
+		private ClassHash(String name, String topLevelClass, String hash) {
+			this.name = name;
+			this.topLevelClass = topLevelClass;
+			this.hash = hash;
+		}
+	}
+}
@@ -27,17 +27,16 @@ package net.fabricmc.loom.decompilers.cfr;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
-import java.util.HashSet;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -45,10 +44,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -66,10 +62,18 @@ import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.service.ServiceRegistry;
 
+import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.decompilers.DecompilationMetadata;
 import net.fabricmc.loom.api.decompilers.LoomDecompiler;
+import net.fabricmc.loom.decompilers.DecompilationCache;
+import net.fabricmc.loom.util.ParallelJarWriter;
 
 public class FabricCFRDecompiler implements LoomDecompiler {
+	private static final Map<String, String> OPTIONS = ImmutableMap.of(
+			"renameillegalidents", "true",
+			"trackbytecodeloc", "true"
+	);
+
 	private final Project project;
 
 	public FabricCFRDecompiler(Project project) {
@@ -85,6 +89,19 @@ public class FabricCFRDecompiler implements LoomDecompiler {
 	public void decompile(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData) {
 		project.getLogger().warn("!!!! The CFR decompiler support is currently incomplete, line numbers will not match up and there will be no javadocs in the generated source.");
 
+		if (!project.getExtensions().getByType(LoomGradleExtension.class).cacheDecompiledClasses) {
+			decompileJar(compiledJar, sourcesDestination, linemapDestination, metaData);
+			return;
+		}
+
+		try {
+			new DecompilationCache(project, name(), CfrDriver.class, OPTIONS).decompile(compiledJar, sourcesDestination, linemapDestination, metaData, this::decompileJar);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to use the decompilation cache", e);
+		}
+	}
+
+	private void decompileJar(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData) {
 		// Setups the multi threaded logger, the thread id is used as the key to the ProgressLogger's
 		ServiceRegistry registry = ((ProjectInternal) project).getServices();
 		ProgressLoggerFactory factory = registry.get(ProgressLoggerFactory.class);
@@ -102,14 +119,22 @@ public class FabricCFRDecompiler implements LoomDecompiler {
 
 		Manifest manifest = new Manifest();
 		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
-		Set<String> addedDirectories = new HashSet<>();
 
-		try (OutputStream fos = Files.newOutputStream(sourcesDestination); JarOutputStream jos = new JarOutputStream(fos, manifest); ZipFile inputZip = new ZipFile(compiledJar.toFile())) {
+		List<ZipFile> libraries = new ArrayList<>();
+
+		try (ParallelJarWriter jarWriter = new ParallelJarWriter(sourcesDestination, manifest)) {
+			// CFR asks for the same supertypes over and over while analysing, so read every class once up front
+			Map<String, byte[]> classFiles = readClassFiles(compiledJar);
+
+			// Only looked up when a class isn't in the jar, mostly to resolve the rest of the game during a partial decompile
+			for (Path library : metaData.libraries) {
+				if (library.toFile().isFile()) {
+					libraries.add(new ZipFile(library.toFile()));
+				}
+			}
+
 			CfrDriver driver = new CfrDriver.Builder()
-					.withOptions(ImmutableMap.of(
-							"renameillegalidents", "true",
-							"trackbytecodeloc", "true"
-					))
+					.withOptions(OPTIONS)
 					.withClassFileSource(new ClassFileSource() {
 						@Override
 						public void informAnalysisRelativePathDetail(String usePath, String classFilePath) {
@@ -127,15 +152,17 @@ public class FabricCFRDecompiler implements LoomDecompiler {
 
 						@Override
 						public Pair<byte[], String> getClassFileContent(String path) throws IOException {
-							ZipEntry zipEntry = inputZip.getEntry(path);
+							byte[] bytes = classFiles.get(path);
 
-							if (zipEntry == null) {
-								throw new FileNotFoundException(path);
+							if (bytes == null) {
+								bytes = readLibraryClass(libraries, path);
 							}
 
-							try (InputStream inputStream = inputZip.getInputStream(zipEntry)) {
-								return Pair.make(ByteStreams.toByteArray(inputStream), path);
+							if (bytes == null) {
+								throw new FileNotFoundException(path);
 							}
+
+							return Pair.make(bytes, path);
 						}
 					})
 					.withOutputSink(new OutputSinkFactory() {
@@ -158,7 +185,7 @@ public class FabricCFRDecompiler implements LoomDecompiler {
 								case PROGRESS:
 									return (p) -> project.getLogger().debug((String) p);
 								case JAVA:
-									return (Sink<T>) decompiledSink(jos, addedDirectories);
+									return (Sink<T>) decompiledSink(jarWriter);
 								case EXCEPTION:
 									return (e) -> project.getLogger().error((String) e);
 							}
@@ -168,10 +195,7 @@ public class FabricCFRDecompiler implements LoomDecompiler {
 					})
 					.build();
 
-			List<String> classes = Collections.list(inputZip.entries()).stream()
-									.map(ZipEntry::getName)
-									.filter(input -> input.endsWith(".class"))
-									.collect(Collectors.toList());
+			List<String> classes = new ArrayList<>(classFiles.keySet());
 
 			ExecutorService executorService = Executors.newFixedThreadPool(metaData.numberOfThreads);
 			List<Future<?>> futures = new LinkedList<>();
@@ -190,52 +214,62 @@ public class FabricCFRDecompiler implements LoomDecompiler {
 			throw new RuntimeException("Failed to decompile", e);
 		} finally {
 			loggerMap.forEach((threadId, progressLogger) -> progressLogger.completed());
+
+			for (ZipFile library : libraries) {
+				try {
+					library.close();
+				} catch (IOException ignored) {
+					// Only read from
+				}
+			}
 		}
 	}
 
-	private static OutputSinkFactory.Sink<SinkReturns.Decompiled> decompiledSink(JarOutputStream jos, Set<String> addedDirectories) {
-		return decompiled -> {
-			String filename = decompiled.getPackageName().replace('.', '/');
-			if (!filename.isEmpty()) filename += "/";
-			filename += decompiled.getClassName() + ".java";
+	private static byte[] readLibraryClass(List<ZipFile> libraries, String path) throws IOException {
+		for (ZipFile library : libraries) {
+			ZipEntry entry = library.getEntry(path);
 
-			byte[] data = decompiled.getJava().getBytes(Charsets.UTF_8);
+			if (entry != null) {
+				try (InputStream inputStream = library.getInputStream(entry)) {
+					return ByteStreams.toByteArray(inputStream);
+				}
+			}
+		}
 
-			writeToJar(filename, data, jos, addedDirectories);
-		};
+		return null;
 	}
 
-	// TODO move to task queue?
-	private static synchronized void writeToJar(String filename, byte[] data, JarOutputStream jos, Set<String> addedDirectories) {
-		String[] path = filename.split("/");
-		String pathPart = "";
+	private static Map<String, byte[]> readClassFiles(Path jar) throws IOException {
+		Map<String, byte[]> classFiles = new LinkedHashMap<>();
 
-		for (int i = 0; i < path.length - 1; i++) {
-			pathPart += path[i] + "/";
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
 
-			if (addedDirectories.add(pathPart)) {
-				JarEntry entry = new JarEntry(pathPart);
-				entry.setTime(new Date().getTime());
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
 
-				try {
-					jos.putNextEntry(entry);
-					jos.closeEntry();
-				} catch (IOException e) {
-					throw new RuntimeException(e);
+				if (entry.getName().endsWith(".class")) {
+					try (InputStream inputStream = zipFile.getInputStream(entry)) {
+						classFiles.put(entry.getName(), ByteStreams.toByteArray(inputStream));
+					}
 				}
 			}
 		}
 
-		JarEntry entry = new JarEntry(filename);
-		entry.setTime(new Date().getTime());
-		entry.setSize(data.length);
+		// Only ever read from here on, so it can be shared by the workers without locking
+		return Collections.unmodifiableMap(classFiles);
+	}
 
-		try {
-			jos.putNextEntry(entry);
-			jos.write(data);
-			jos.closeEntry();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+	private static OutputSinkFactory.Sink<SinkReturns.Decompiled> decompiledSink(ParallelJarWriter jarWriter) {
+		return decompiled -> {
+			String filename = decompiled.getPackageName().replace('.', '/');
+			if (!filename.isEmpty()) filename += "/";
+			filename += decompiled.getClassName() + ".java";
+
+			byte[] data = decompiled.getJava().getBytes(Charsets.UTF_8);
+
+			// Deflated on the CFR worker, written by the jar writer thread
+			jarWriter.add(filename, data);
+		};
 	}
 }
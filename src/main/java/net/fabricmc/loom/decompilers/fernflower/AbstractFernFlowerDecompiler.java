@@ -26,14 +26,31 @@ package net.fabricmc.loom.decompilers.fernflower;
 
 import static java.text.MessageFormat.format;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.TreeMap;
 import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.io.FileUtils;
 import org.gradle.api.Project;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.logging.LogLevel;
@@ -41,15 +58,31 @@ import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.process.ExecResult;
+import org.jetbrains.java.decompiler.main.Fernflower;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
+import org.objectweb.asm.ClassReader;
 
+import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.api.decompilers.DecompilationMetadata;
 import net.fabricmc.loom.api.decompilers.LoomDecompiler;
+import net.fabricmc.loom.decompilers.DecompilationCache;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.ConsumingOutputStream;
 import net.fabricmc.loom.util.OperatingSystem;
+import net.fabricmc.loom.util.ThreadingUtils;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
 
 public abstract class AbstractFernFlowerDecompiler implements LoomDecompiler {
+	private static final int CONSTANT_CLASS = 7;
+	/**
+	 * The options that change the decompiled sources, the log level and threads are added for each run.
+	 */
+	private static final Map<String, Object> OPTIONS = ImmutableMap.of(
+			IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1",
+			IFernflowerPreferences.BYTECODE_SOURCE_MAPPING, "1",
+			IFernflowerPreferences.REMOVE_SYNTHETIC, "1"
+	);
+
 	private final Project project;
 
 	protected AbstractFernFlowerDecompiler(Project project) {
@@ -60,19 +93,280 @@ public abstract class AbstractFernFlowerDecompiler implements LoomDecompiler {
 
 	@Override
 	public void decompile(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData) {
+		if (!project.getExtensions().getByType(LoomGradleExtension.class).cacheDecompiledClasses) {
+			decompileJar(compiledJar, sourcesDestination, linemapDestination, metaData);
+			return;
+		}
+
+		try {
+			new DecompilationCache(project, name(), Fernflower.class, OPTIONS).decompile(compiledJar, sourcesDestination, linemapDestination, metaData, this::decompileJar);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to use the decompilation cache", e);
+		}
+	}
+
+	private void decompileJar(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData) {
 		if (!OperatingSystem.is64Bit()) {
 			throw new UnsupportedOperationException("FernFlower decompiler requires a 64bit JVM to run due to the memory requirements");
 		}
 
 		project.getLogging().captureStandardOutput(LogLevel.LIFECYCLE);
 
-		Map<String, Object> options = new HashMap<String, Object>() {{
-				put(IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1");
-				put(IFernflowerPreferences.BYTECODE_SOURCE_MAPPING, "1");
-				put(IFernflowerPreferences.REMOVE_SYNTHETIC, "1");
-				put(IFernflowerPreferences.LOG_LEVEL, "trace");
-				put(IFernflowerPreferences.THREADS, metaData.numberOfThreads);
-			}};
+		ServiceRegistry registry = ((ProjectInternal) project).getServices();
+		ProgressLoggerFactory factory = registry.get(ProgressLoggerFactory.class);
+		ProgressLogger progressGroup = factory.newOperation(getClass()).setDescription("Decompile");
+		int shards = Math.max(1, project.getExtensions().getByType(LoomGradleExtension.class).forkedDecompilerShards);
+		Object classpath = ForkingJavaExec.resolveClasspath(getExecProject());
+
+		progressGroup.started();
+
+		try {
+			if (shards <= 1 || !decompileSharded(compiledJar, sourcesDestination, linemapDestination, metaData, shards, classpath, factory, progressGroup)) {
+				ForkedDecompilerSizing sizing = ForkedDecompilerSizing.compute(project, name(), compiledJar, metaData.libraries, metaData.numberOfThreads);
+				sizing.log(project);
+				long liveHeap = fork(compiledJar, sourcesDestination, linemapDestination, metaData, sizing, classpath, factory, progressGroup);
+				sizing.recordLiveHeap(project, name(), liveHeap);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to decompile", e);
+		} finally {
+			progressGroup.completed();
+		}
+	}
+
+	/**
+	 * Splits the jar by package into shards of about the same size, decompiles each shard in its own JVM at the same
+	 * time and merges the sources and line maps. Each shard is given the classes of the other shards it references, and
+	 * their supertypes, as a library instead of the whole jar, so each JVM only holds its part of the jar and is sized for
+	 * it. Fewer shards are used when their heaps don't fit in memory together.
+	 *
+	 * @return false if not even two shards fit, so the jar has to be decompiled in a single JVM
+	 */
+	private boolean decompileSharded(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData, int shards, Object classpath, ProgressLoggerFactory factory, ProgressLogger progressGroup) throws IOException {
+		Map<String, Map<String, byte[]>> packages = new TreeMap<>();
+		Map<String, byte[]> classes = new HashMap<>();
+		Map<String, Set<String>> references = new HashMap<>();
+		Map<String, List<String>> supers = new HashMap<>();
+
+		try (ZipFile zipFile = new ZipFile(compiledJar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+
+				if (!entry.isDirectory() && name.endsWith(".class")) {
+					try (InputStream in = zipFile.getInputStream(entry)) {
+						byte[] bytes = ByteStreams.toByteArray(in);
+						String className = name.substring(0, name.length() - ".class".length());
+						ClassReader reader = new ClassReader(bytes);
+						String packageName = name.lastIndexOf('/') >= 0 ? name.substring(0, name.lastIndexOf('/')) : "";
+						packages.computeIfAbsent(packageName, s -> new LinkedHashMap<>()).put(name, bytes);
+						classes.put(className, bytes);
+						references.put(className, getReferences(reader));
+						List<String> classSupers = new ArrayList<>(Arrays.asList(reader.getInterfaces()));
+
+						if (reader.getSuperName() != null) {
+							classSupers.add(reader.getSuperName());
+						}
+
+						supers.put(className, classSupers);
+					}
+				}
+			}
+		}
+
+		for (int jvms = Math.min(shards, packages.size()); jvms > 1; jvms--) {
+			List<Map<String, byte[]>> shardEntries = split(packages, jvms);
+			List<Map<String, byte[]>> shardContexts = new ArrayList<>();
+			List<ForkedDecompilerSizing> sizings = new ArrayList<>();
+			boolean fits = true;
+
+			for (Map<String, byte[]> entries : shardEntries) {
+				Map<String, byte[]> context = getContext(entries.keySet(), classes, references, supers);
+				ForkedDecompilerSizing sizing = ForkedDecompilerSizing.compute(project, name(), entries.size() + context.size(), true, metaData.numberOfThreads, jvms);
+				shardContexts.add(context);
+				sizings.add(sizing);
+				fits &= sizing.fits;
+			}
+
+			if (fits) {
+				sizings.forEach(sizing -> sizing.log(project));
+				decompileShards(shardEntries, shardContexts, sizings, sourcesDestination, linemapDestination, metaData, classpath, factory, progressGroup);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Puts the largest packages first, each onto the shard with the fewest bytes so far.
+	 */
+	private static List<Map<String, byte[]>> split(Map<String, Map<String, byte[]>> packages, int shards) {
+		List<Map<String, byte[]>> shardEntries = new ArrayList<>();
+		long[] shardSizes = new long[shards];
+		List<Map<String, byte[]>> sortedPackages = new ArrayList<>(packages.values());
+		sortedPackages.sort(Comparator.comparingLong(AbstractFernFlowerDecompiler::size).reversed());
+
+		for (int i = 0; i < shards; i++) {
+			shardEntries.add(new LinkedHashMap<>());
+		}
+
+		for (Map<String, byte[]> packageEntries : sortedPackages) {
+			int smallest = 0;
+
+			for (int i = 1; i < shards; i++) {
+				if (shardSizes[i] < shardSizes[smallest]) {
+					smallest = i;
+				}
+			}
+
+			shardEntries.get(smallest).putAll(packageEntries);
+			shardSizes[smallest] += size(packageEntries);
+		}
+
+		return shardEntries;
+	}
+
+	/**
+	 * Finds the classes outside of a shard that it references, directly or as a supertype of a referenced class.
+	 */
+	private static Map<String, byte[]> getContext(Set<String> entryNames, Map<String, byte[]> classes, Map<String, Set<String>> references, Map<String, List<String>> supers) {
+		Set<String> own = new HashSet<>();
+		List<String> queue = new ArrayList<>();
+
+		for (String entryName : entryNames) {
+			String className = entryName.substring(0, entryName.length() - ".class".length());
+			own.add(className);
+			queue.addAll(references.get(className));
+		}
+
+		Map<String, byte[]> context = new LinkedHashMap<>();
+
+		while (!queue.isEmpty()) {
+			String className = queue.remove(queue.size() - 1);
+			byte[] bytes = classes.get(className);
+
+			if (bytes == null || own.contains(className) || context.containsKey(className + ".class")) {
+				continue;
+			}
+
+			context.put(className + ".class", bytes);
+			queue.addAll(supers.get(className));
+		}
+
+		return context;
+	}
+
+	/**
+	 * Lists every class in the constant pool, which covers the supertypes, the owners of the fields and methods the class
+	 * uses and its inner and outer classes.
+	 */
+	private static Set<String> getReferences(ClassReader reader) {
+		Set<String> references = new HashSet<>();
+		char[] buffer = new char[reader.getMaxStringLength()];
+
+		for (int i = 1; i < reader.getItemCount(); i++) {
+			int offset = reader.getItem(i);
+
+			// The second slot of a long or double has no entry
+			if (offset == 0 || reader.readByte(offset - 1) != CONSTANT_CLASS) {
+				continue;
+			}
+
+			String name = reader.readUTF8(offset, buffer);
+
+			if (name.startsWith("[")) {
+				int start = name.lastIndexOf('[') + 1;
+
+				if (name.charAt(start) != 'L') {
+					continue;
+				}
+
+				name = name.substring(start + 1, name.length() - 1);
+			}
+
+			references.add(name);
+		}
+
+		return references;
+	}
+
+	private void decompileShards(List<Map<String, byte[]>> shardEntries, List<Map<String, byte[]>> shardContexts, List<ForkedDecompilerSizing> sizings, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData, Object classpath, ProgressLoggerFactory factory, ProgressLogger progressGroup) throws IOException {
+		Path directory = Files.createTempDirectory(sourcesDestination.toAbsolutePath().getParent(), "decompile-shards");
+
+		try {
+			List<ThreadingUtils.UnsafeRunnable> jobs = new ArrayList<>();
+
+			for (int i = 0; i < shardEntries.size(); i++) {
+				int shard = i;
+				Path input = directory.resolve("shard-" + shard + ".jar");
+				Path context = directory.resolve("shard-" + shard + "-context.jar");
+				ZipReprocessorUtil.writeZip(input.toFile(), shardEntries.get(shard), false, true);
+				ZipReprocessorUtil.writeZip(context.toFile(), shardContexts.get(shard), false, true);
+
+				Set<Path> libraries = new HashSet<>(metaData.libraries);
+				libraries.add(context);
+				DecompilationMetadata shardMetaData = new DecompilationMetadata(metaData.numberOfThreads, metaData.javaDocs, libraries);
+
+				// Only starts the process, the classpath was resolved on this thread
+				jobs.add(() -> fork(input, directory.resolve("shard-" + shard + "-sources.jar"), directory.resolve("shard-" + shard + ".lmap"), shardMetaData, sizings.get(shard), classpath, factory, progressGroup));
+			}
+
+			ThreadingUtils.run(jobs);
+
+			Map<String, byte[]> sources = new LinkedHashMap<>();
+
+			try (OutputStream linemap = Files.newOutputStream(linemapDestination)) {
+				for (int i = 0; i < shardEntries.size(); i++) {
+					try (ZipFile zipFile = new ZipFile(directory.resolve("shard-" + i + "-sources.jar").toFile())) {
+						Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+						while (entries.hasMoreElements()) {
+							ZipEntry entry = entries.nextElement();
+
+							if (!entry.isDirectory() && !sources.containsKey(entry.getName())) {
+								try (InputStream in = zipFile.getInputStream(entry)) {
+									sources.put(entry.getName(), ByteStreams.toByteArray(in));
+								}
+							}
+						}
+					}
+
+					Path shardLinemap = directory.resolve("shard-" + i + ".lmap");
+
+					if (Files.exists(shardLinemap)) {
+						Files.copy(shardLinemap, linemap);
+					}
+				}
+			}
+
+			ZipReprocessorUtil.writeZip(sourcesDestination.toFile(), sources, false, true);
+		} finally {
+			FileUtils.deleteDirectory(directory.toFile());
+		}
+	}
+
+	private static long size(Map<String, byte[]> entries) {
+		return entries.values().stream().mapToLong(bytes -> bytes.length).sum();
+	}
+
+	private Project getExecProject() {
+		return project.getRootProject().getPlugins().hasPlugin(Constants.PLUGIN_ID) ? project.getRootProject() : project;
+	}
+
+	/**
+	 * Runs the decompiler in a new JVM.
+	 *
+	 * @return the most heap the decompiler still used after a collection
+	 */
+	private long fork(Path compiledJar, Path sourcesDestination, Path linemapDestination, DecompilationMetadata metaData, ForkedDecompilerSizing sizing, Object classpath, ProgressLoggerFactory factory, ProgressLogger progressGroup) {
+		long[] liveHeap = new long[1];
+
+		Map<String, Object> options = new HashMap<>(OPTIONS);
+		options.put(IFernflowerPreferences.LOG_LEVEL, "trace");
+		options.put(IFernflowerPreferences.THREADS, sizing.threads);
 
 		List<String> args = new ArrayList<>();
 
@@ -87,9 +381,6 @@ public abstract class AbstractFernFlowerDecompiler implements LoomDecompiler {
 			args.add("-e=" + absolutePathOf(library));
 		}
 
-		ServiceRegistry registry = ((ProjectInternal) project).getServices();
-		ProgressLoggerFactory factory = registry.get(ProgressLoggerFactory.class);
-		ProgressLogger progressGroup = factory.newOperation(getClass()).setDescription("Decompile");
 		Supplier<ProgressLogger> loggerFactory = () -> {
 			ProgressLogger pl = factory.newOperation(getClass(), progressGroup);
 			pl.setDescription("decompile worker");
@@ -99,15 +390,20 @@ public abstract class AbstractFernFlowerDecompiler implements LoomDecompiler {
 		Stack<ProgressLogger> freeLoggers = new Stack<>();
 		Map<String, ProgressLogger> inUseLoggers = new HashMap<>();
 
-		progressGroup.started();
 		ExecResult result = ForkingJavaExec.javaexec(
-				project.getRootProject().getPlugins().hasPlugin(Constants.PLUGIN_ID) ? project.getRootProject() : project,
+				getExecProject(),
+				classpath,
 				spec -> {
 					spec.setMain(fernFlowerExecutor().getName());
-					spec.jvmArgs("-Xms200m", "-Xmx3G");
+					spec.jvmArgs("-Xms200m", sizing.getMaxHeapArgument());
 					spec.setArgs(args);
 					spec.setErrorOutput(System.err);
 					spec.setStandardOutput(new ConsumingOutputStream(line -> {
+						if (line.startsWith(AbstractForkedFFExecutor.LIVE_HEAP_PREFIX)) {
+							liveHeap[0] = Long.parseLong(line.substring(AbstractForkedFFExecutor.LIVE_HEAP_PREFIX.length()).trim());
+							return;
+						}
+
 						if (line.startsWith("Listening for transport") || !line.contains("::")) {
 							System.out.println(line);
 							return;
@@ -144,10 +440,11 @@ public abstract class AbstractFernFlowerDecompiler implements LoomDecompiler {
 				});
 		inUseLoggers.values().forEach(ProgressLogger::completed);
 		freeLoggers.forEach(ProgressLogger::completed);
-		progressGroup.completed();
 
 		result.rethrowFailure();
 		result.assertNormalExitValue();
+
+		return liveHeap[0];
 	}
 
 	private static String absolutePathOf(Path path) {
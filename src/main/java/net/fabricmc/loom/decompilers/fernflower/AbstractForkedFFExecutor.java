@@ -25,6 +25,10 @@
 package net.fabricmc.loom.decompilers.fernflower;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +46,11 @@ import java.util.Objects;
  * </p>
  */
 public abstract class AbstractForkedFFExecutor {
+	/**
+	 * Printed once decompiling is done, followed by the most heap that was still in use after a collection.
+	 */
+	public static final String LIVE_HEAP_PREFIX = "loom-live-heap ";
+
 	public static void decompile(String[] args, AbstractForkedFFExecutor ffExecutor) {
 		Map<String, Object> options = new HashMap<>();
 		File input = null;
@@ -100,8 +109,66 @@ public abstract class AbstractForkedFFExecutor {
 		Objects.requireNonNull(output, "Output not set.");
 		Objects.requireNonNull(mappings, "Mappings not set.");
 
+		LiveHeapSampler sampler = new LiveHeapSampler();
+		sampler.start();
 		ffExecutor.runFF(options, libraries, input, output, lineMap, mappings);
+		System.out.println(LIVE_HEAP_PREFIX + sampler.stop());
 	}
 
 	public abstract void runFF(Map<String, Object> options, List<File> libraries, File input, File output, File lineMap, File mappings);
+
+	/**
+	 * Tracks the heap used right after each collection, which is what the decompiler actually needs rather than what
+	 * the collector let it grow to.
+	 */
+	private static class LiveHeapSampler extends Thread {
+		private volatile boolean running = true;
+		private long maxLiveHeap;
+
+		LiveHeapSampler() {
+			super("Live heap sampler");
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				sample();
+
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		private void sample() {
+			long liveHeap = 0;
+
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					MemoryUsage usage = pool.getCollectionUsage();
+
+					if (usage != null) {
+						liveHeap += usage.getUsed();
+					}
+				}
+			}
+
+			synchronized (this) {
+				maxLiveHeap = Math.max(maxLiveHeap, liveHeap);
+			}
+		}
+
+		long stop() {
+			running = false;
+			interrupt();
+			sample();
+
+			synchronized (this) {
+				return maxLiveHeap;
+			}
+		}
+	}
 }
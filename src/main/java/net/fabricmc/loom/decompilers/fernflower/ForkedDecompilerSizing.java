@@ -0,0 +1,366 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.decompilers.fernflower;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.gradle.api.Project;
+
+import net.fabricmc.loom.LoomGradleExtension;
+
+/**
+ * Picks the heap size and thread count of the forked decompiler JVM. The heap has to hold every class of the jar plus
+ * the classes each thread is working on, and may only use the memory the host, or the container it runs in, has left
+ * next to the Gradle daemon. How much memory a class needs is learnt from the previous runs of the decompiler.
+ *
+ * <p>When only part of a jar is decompiled, with the full jar as a library, the decompiler still loads the full jar, so
+ * it is sized for the classes of the full jar. A shard of a jar decompiled in several JVMs at once is sized for its own
+ * classes and the classes it is given as context. Such runs are not used to learn the memory needed per class.
+ *
+ * <p>Both values can be set by hand with the {@code fabric.loom.decompiler.maxHeap} and {@code fabric.loom.decompiler.threads}
+ * properties, or for a single decompiler by putting its name after {@code fabric.loom.decompiler.}.
+ */
+public class ForkedDecompilerSizing {
+	private static final String PROPERTY_PREFIX = "fabric.loom.decompiler.";
+	private static final long MB = 1024 * 1024;
+	private static final long MIN_HEAP = 512 * MB;
+	// Keeps the heap small enough for compressed object pointers
+	private static final long MAX_HEAP = 31 * 1024 * MB;
+	private static final long BASE_HEAP = 256 * MB;
+	private static final long HEAP_PER_THREAD = 64 * MB;
+	private static final long DEFAULT_HEAP_PER_CLASS = 192 * 1024;
+	// Room for the collector on top of the memory that is actually live
+	private static final double HEADROOM = 1.5;
+
+	public final long maxHeap;
+	public final int threads;
+	/**
+	 * The number of classes the decompiler holds: those of the jar, of the full jar it is a part of, or of a shard and its context.
+	 */
+	public final int classes;
+	/**
+	 * Whether the heap and threads leave room for the classes of the jar within the available memory.
+	 */
+	public final boolean fits;
+	private final boolean partial;
+	private final String reason;
+
+	private ForkedDecompilerSizing(long maxHeap, int threads, int classes, boolean fits, boolean partial, String reason) {
+		this.maxHeap = maxHeap;
+		this.threads = threads;
+		this.classes = classes;
+		this.fits = fits;
+		this.partial = partial;
+		this.reason = reason;
+	}
+
+	/**
+	 * @param libraries the libraries passed to the decompiler, which may include the full jar the compiled jar is part of
+	 */
+	public static ForkedDecompilerSizing compute(Project project, String decompiler, Path compiledJar, Collection<Path> libraries, int maxThreads) {
+		int ownClasses = countClasses(compiledJar);
+		Path fullJar = findFullJar(compiledJar, libraries);
+		int classes = fullJar != null ? Math.max(ownClasses, countClasses(fullJar)) : ownClasses;
+		return compute(project, decompiler, classes, fullJar != null, maxThreads, 1);
+	}
+
+	/**
+	 * @param classes the number of classes the decompiler holds
+	 * @param partial whether only part of a jar is decompiled
+	 * @param jvms how many decompiler JVMs share the memory and processors at once
+	 */
+	public static ForkedDecompilerSizing compute(Project project, String decompiler, int classes, boolean partial, int maxThreads, int jvms) {
+		long heapPerClass = readHeapPerClass(project, decompiler);
+		long memory = getAvailableMemory();
+		int processors = Math.max(1, Math.min(maxThreads, getAvailableProcessors()) / jvms);
+
+		// The daemon keeps its own heap while the decompiler runs, whatever is left is split between the JVMs
+		long budget = Math.max(MIN_HEAP, (long) ((memory - Runtime.getRuntime().maxMemory()) * 0.75) / jvms);
+		long contextHeap = BASE_HEAP + (long) (heapPerClass * classes * HEADROOM);
+		// Fewer threads first, the heap never grows past the budget
+		int threads = (int) Math.max(1, Math.min(processors, (budget - contextHeap) / HEAP_PER_THREAD));
+		long maxHeap = Math.min(Math.min(MAX_HEAP, budget), Math.max(MIN_HEAP, contextHeap + threads * HEAP_PER_THREAD));
+		boolean fits = contextHeap + HEAP_PER_THREAD <= budget;
+		String reason = String.format(Locale.ROOT, "%d classes at %dK each, %dM of memory and %d processors available", classes, heapPerClass / 1024, memory / MB, processors);
+
+		if (jvms > 1) {
+			reason += String.format(Locale.ROOT, " to each of %d JVMs", jvms);
+		}
+
+		if (!fits) {
+			reason += ", the decompiler may run out of memory";
+		}
+
+		Long heapOverride = parseSize(findProperty(project, decompiler, "maxHeap"));
+		Integer threadsOverride = parseThreads(findProperty(project, decompiler, "threads"));
+
+		if (heapOverride != null || threadsOverride != null) {
+			reason = "set by properties";
+			fits = true;
+		}
+
+		return new ForkedDecompilerSizing(heapOverride != null ? heapOverride : maxHeap, threadsOverride != null ? threadsOverride : threads, classes, fits, partial, reason);
+	}
+
+	public String getMaxHeapArgument() {
+		return "-Xmx" + (maxHeap / MB) + "M";
+	}
+
+	public void log(Project project) {
+		project.getLogger().lifecycle(":decompiling with {} threads and a {}M heap ({})", threads, maxHeap / MB, reason);
+	}
+
+	/**
+	 * Remembers how much heap the decompiler needed per class, as reported by the forked JVM. Runs over part of a jar
+	 * are skipped, as their few classes would make each class look far more expensive than it is.
+	 */
+	public void recordLiveHeap(Project project, String decompiler, long liveHeap) {
+		if (partial || classes <= 0 || liveHeap <= 0) {
+			return;
+		}
+
+		File file = getStatsFile(project);
+		Properties properties = readStats(file);
+		properties.setProperty(decompiler, Long.toString(liveHeap / classes));
+
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			properties.store(writer, "Heap used per class by the forked decompilers");
+		} catch (IOException e) {
+			project.getLogger().info("Failed to save decompiler memory usage", e);
+		}
+	}
+
+	/**
+	 * @return the library holding the classes of the compiled jar, when only part of a jar is being decompiled
+	 */
+	private static Path findFullJar(Path compiledJar, Collection<Path> libraries) {
+		String sample;
+		long size;
+
+		try (ZipFile zipFile = new ZipFile(compiledJar.toFile())) {
+			sample = zipFile.stream().map(ZipEntry::getName).filter(name -> name.endsWith(".class")).findFirst().orElse(null);
+			size = Files.size(compiledJar);
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read " + compiledJar, e);
+		}
+
+		if (sample == null) {
+			return null;
+		}
+
+		for (Path library : libraries) {
+			if (library.equals(compiledJar) || !Files.isRegularFile(library)) {
+				continue;
+			}
+
+			try {
+				// Only a larger jar can hold all of the classes
+				if (Files.size(library) < size) {
+					continue;
+				}
+
+				try (ZipFile zipFile = new ZipFile(library.toFile())) {
+					if (zipFile.getEntry(sample) != null) {
+						return library;
+					}
+				}
+			} catch (IOException ignored) {
+				// Not a jar, so not part of the context that matters here
+			}
+		}
+
+		return null;
+	}
+
+	private static long readHeapPerClass(Project project, String decompiler) {
+		String value = readStats(getStatsFile(project)).getProperty(decompiler);
+
+		if (value != null) {
+			try {
+				return Math.max(1, Long.parseLong(value));
+			} catch (NumberFormatException ignored) {
+				// Written by us, fall back to the default
+			}
+		}
+
+		return DEFAULT_HEAP_PER_CLASS;
+	}
+
+	private static File getStatsFile(Project project) {
+		return new File(project.getExtensions().getByType(LoomGradleExtension.class).getUserCache(), "decompiler-memory.properties");
+	}
+
+	private static Properties readStats(File file) {
+		Properties properties = new Properties();
+
+		if (file.exists()) {
+			try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			} catch (IOException ignored) {
+				// Only an estimate, start over
+			}
+		}
+
+		return properties;
+	}
+
+	private static int countClasses(Path jar) {
+		try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+			return (int) zipFile.stream().filter(entry -> entry.getName().endsWith(".class")).count();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to read " + jar, e);
+		}
+	}
+
+	/**
+	 * @return the physical memory of the host, or the memory limit of the container when it is lower
+	 */
+	private static long getAvailableMemory() {
+		long memory = 4096 * MB;
+		OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+		if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+			memory = ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+		}
+
+		// cgroup v2, then v1. An unlimited v1 group reports a huge number, which the minimum takes care of.
+		Long limit = readCgroupValue("/sys/fs/cgroup/memory.max");
+
+		if (limit == null) {
+			limit = readCgroupValue("/sys/fs/cgroup/memory/memory.limit_in_bytes");
+		}
+
+		return limit != null && limit > 0 ? Math.min(memory, limit) : memory;
+	}
+
+	private static int getAvailableProcessors() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		String cpuMax = readCgroupFile("/sys/fs/cgroup/cpu.max");
+		Long quota = null;
+		Long period = null;
+
+		if (cpuMax != null) {
+			String[] parts = cpuMax.split(" ");
+			quota = parseLong(parts[0]);
+			period = parts.length > 1 ? parseLong(parts[1]) : null;
+		} else {
+			quota = readCgroupValue("/sys/fs/cgroup/cpu/cpu.cfs_quota_us");
+			period = readCgroupValue("/sys/fs/cgroup/cpu/cpu.cfs_period_us");
+		}
+
+		if (quota != null && period != null && quota > 0 && period > 0) {
+			processors = (int) Math.min(processors, Math.max(1, (quota + period - 1) / period));
+		}
+
+		return processors;
+	}
+
+	private static Long readCgroupValue(String path) {
+		String value = readCgroupFile(path);
+		return value != null ? parseLong(value) : null;
+	}
+
+	private static String readCgroupFile(String path) {
+		Path file = Paths.get(path);
+
+		if (!Files.isReadable(file)) {
+			return null;
+		}
+
+		try {
+			return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static Long parseLong(String value) {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			// "max" in cgroup v2
+			return null;
+		}
+	}
+
+	private static Object findProperty(Project project, String decompiler, String name) {
+		Object value = project.findProperty(PROPERTY_PREFIX + decompiler + "." + name);
+		return value != null ? value : project.findProperty(PROPERTY_PREFIX + name);
+	}
+
+	/**
+	 * Parses a size the way -Xmx does, such as 4G, 3072M or a number of bytes.
+	 */
+	private static Long parseSize(Object value) {
+		if (value == null) {
+			return null;
+		}
+
+		String size = value.toString().trim().toUpperCase(Locale.ROOT);
+		long unit = 1;
+
+		if (size.endsWith("G")) {
+			unit = 1024 * MB;
+		} else if (size.endsWith("M")) {
+			unit = MB;
+		} else if (size.endsWith("K")) {
+			unit = 1024;
+		}
+
+		Long number = parseLong(unit == 1 ? size : size.substring(0, size.length() - 1));
+
+		if (number == null || number <= 0) {
+			throw new IllegalArgumentException("Invalid decompiler heap size: " + value);
+		}
+
+		return number * unit;
+	}
+
+	private static Integer parseThreads(Object value) {
+		if (value == null) {
+			return null;
+		}
+
+		try {
+			return Math.max(1, Integer.parseInt(value.toString().trim()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid decompiler thread count: " + value);
+		}
+	}
+}
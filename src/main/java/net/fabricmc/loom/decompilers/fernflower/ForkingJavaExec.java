@@ -43,18 +43,29 @@ import org.gradle.process.JavaExecSpec;
  */
 public class ForkingJavaExec {
 	public static ExecResult javaexec(Project project, Action<? super JavaExecSpec> action) {
+		return javaexec(project, resolveClasspath(project), action);
+	}
+
+	/**
+	 * Runs the process with a classpath from {@link #resolveClasspath(Project)}, so nothing is resolved by this call.
+	 */
+	public static ExecResult javaexec(Project project, Object classpath, Action<? super JavaExecSpec> action) {
 		return project.javaexec(spec -> {
-			spec.classpath(getClasspath(project));
+			spec.classpath(classpath);
 			action.execute(spec);
 		});
 	}
 
-	private static Object getClasspath(Project project) {
+	/**
+	 * Resolves the classpath of the process. Resolving has to happen on a thread managed by Gradle,
+	 * so this is called before starting processes from other threads.
+	 */
+	public static Object resolveClasspath(Project project) {
 		if (System.getProperty("fabric.loom.test") != null) {
 			return getTestClasspath();
 		}
 
-		return getRuntimeClasspath(project.getRootProject().getPlugins().hasPlugin("fabric-loom") ? project.getRootProject() : project);
+		return getRuntimeClasspath(project.getRootProject().getPlugins().hasPlugin("fabric-loom") ? project.getRootProject() : project).getFiles();
 	}
 
 	private static FileCollection getRuntimeClasspath(Project project) {
@@ -26,15 +26,27 @@ package net.fabricmc.loom.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.inject.Inject;
 
+import com.google.common.io.ByteStreams;
 import org.gradle.api.Project;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.TaskAction;
@@ -44,8 +56,11 @@ import net.fabricmc.loom.api.decompilers.DecompilationMetadata;
 import net.fabricmc.loom.api.decompilers.LoomDecompiler;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProvider;
 import net.fabricmc.loom.configuration.sources.ForgeSourcesRemapper;
+import net.fabricmc.loom.decompilers.DecompilationCache;
+import net.fabricmc.loom.decompilers.DecompiledClassIndex;
 import net.fabricmc.loom.decompilers.LineNumberRemapper;
 import net.fabricmc.loom.util.Constants;
+import net.fabricmc.loom.util.ZipReprocessorUtil;
 import net.fabricmc.loom.util.gradle.ProgressLogger;
 import net.fabricmc.stitch.util.StitchUtil;
 
@@ -68,13 +83,51 @@ public class GenerateSourcesTask extends AbstractLoomTask {
 		Collection<Path> libraries = getProject().getConfigurations().getByName(Constants.Configurations.MINECRAFT_DEPENDENCIES).getFiles()
 						.stream().map(File::toPath).collect(Collectors.toSet());
 
-		DecompilationMetadata metadata = new DecompilationMetadata(threads, javaDocs, libraries);
 		Path runtimeJar = getExtension().getMappingsProvider().mappedProvider.getMappedJar().toPath();
 		Path sourcesDestination = getMappedJarFileWithSuffix("-sources.jar").toPath();
 		Path linemap = getMappedJarFileWithSuffix("-sources.lmap").toPath();
-		decompiler.decompile(inputJar.toPath(), sourcesDestination, linemap, metadata);
+		Path indexFile = getMappedJarFileWithSuffix("-sources.index.json").toPath();
+		DecompiledClassIndex index = null;
+		boolean patched = false;
+		boolean remapRuntimeJar = true;
 
-		if (Files.exists(linemap)) {
+		if (getExtension().incrementalGenSources) {
+			index = DecompiledClassIndex.create(decompiler.name(), DecompilationCache.hashImplementation(decompiler.getClass()), inputJar.toPath(), getExtension().getMappingsProvider().getMappings());
+			DecompiledClassIndex previous = Files.exists(sourcesDestination) ? DecompiledClassIndex.read(indexFile) : null;
+			// Written again once the sources are complete, so a failed run can't leave an index that doesn't match them
+			Files.deleteIfExists(indexFile);
+
+			if (index.canPatch(previous)) {
+				Set<String> changed = index.getChangedClasses(previous);
+				Set<String> removed = index.getRemovedClasses(previous);
+				boolean runtimeJarReplaced = !getFileStamp(runtimeJar).equals(previous.getRuntimeJar());
+
+				if (changed.isEmpty() && removed.isEmpty()) {
+					// Nothing to decompile, only line map the runtime jar if it was replaced since it last was
+					remapRuntimeJar = runtimeJarReplaced;
+					patched = true;
+				} else if (runtimeJarReplaced) {
+					getProject().getLogger().lifecycle(":decompiling {} of {} classes, {} removed", changed.size(), index.size(), removed.size());
+
+					// The rest of the jar is still needed to resolve the changed classes against
+					Set<Path> partialLibraries = new HashSet<>(libraries);
+					partialLibraries.add(inputJar.toPath());
+					decompileChanged(changed, removed, sourcesDestination, linemap, new DecompilationMetadata(threads, javaDocs, partialLibraries));
+					patched = true;
+				} else {
+					// The runtime jar is still line mapped for the previous sources, line mapping all of it again would
+					// shift the lines of the unchanged classes twice
+					getProject().getLogger().lifecycle(":runtime jar is line mapped for the previous sources, decompiling all classes");
+				}
+			}
+		}
+
+		if (!patched) {
+			DecompilationMetadata metadata = new DecompilationMetadata(threads, javaDocs, libraries);
+			decompiler.decompile(inputJar.toPath(), sourcesDestination, linemap, metadata);
+		}
+
+		if (Files.exists(linemap) && remapRuntimeJar) {
 			Path linemappedJarDestination = getMappedJarFileWithSuffix("-linemapped.jar").toPath();
 
 			// Line map the actually jar used to run the game, not the one used to decompile
@@ -87,6 +140,105 @@ public class GenerateSourcesTask extends AbstractLoomTask {
 		if (getExtension().isForge()) {
 			ForgeSourcesRemapper.addForgeSources(getProject(), sourcesDestination);
 		}
+
+		if (index != null) {
+			index.setRuntimeJar(getFileStamp(runtimeJar));
+			index.write(indexFile);
+		}
+	}
+
+	/**
+	 * Decompiles only the given top level classes and their nest members, and swaps their sources and line mappings
+	 * into the existing sources jar and line map.
+	 */
+	private void decompileChanged(Set<String> changed, Set<String> removed, Path sourcesDestination, Path linemap, DecompilationMetadata metadata) throws IOException {
+		Path partialInput = getMappedJarFileWithSuffix("-sources-partial-input.jar").toPath();
+		Path partialSources = getMappedJarFileWithSuffix("-sources-partial.jar").toPath();
+		Path partialLinemap = getMappedJarFileWithSuffix("-sources-partial.lmap").toPath();
+		Set<String> replaced = new HashSet<>(changed);
+		replaced.addAll(removed);
+
+		try {
+			if (!changed.isEmpty()) {
+				Files.deleteIfExists(partialLinemap);
+				DecompiledClassIndex.writeClasses(inputJar.toPath(), partialInput, changed);
+				decompiler.decompile(partialInput, partialSources, partialLinemap, metadata);
+			}
+
+			Map<String, byte[]> sources = new LinkedHashMap<>();
+
+			try (ZipFile zipFile = new ZipFile(sourcesDestination.toFile())) {
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+
+					if (!entry.isDirectory() && !replaced.contains(getSourceClass(entry.getName()))) {
+						try (InputStream in = zipFile.getInputStream(entry)) {
+							sources.put(entry.getName(), ByteStreams.toByteArray(in));
+						}
+					}
+				}
+			}
+
+			if (Files.exists(partialSources)) {
+				try (ZipFile zipFile = new ZipFile(partialSources.toFile())) {
+					Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+					while (entries.hasMoreElements()) {
+						ZipEntry entry = entries.nextElement();
+
+						if (!entry.isDirectory() && !sources.containsKey(entry.getName())) {
+							try (InputStream in = zipFile.getInputStream(entry)) {
+								sources.put(entry.getName(), ByteStreams.toByteArray(in));
+							}
+						}
+					}
+				}
+			}
+
+			ZipReprocessorUtil.writeZip(sourcesDestination.toFile(), sources, false, true);
+
+			if (Files.exists(linemap)) {
+				patchLinemap(linemap, partialLinemap, replaced);
+			}
+		} finally {
+			Files.deleteIfExists(partialInput);
+			Files.deleteIfExists(partialSources);
+			Files.deleteIfExists(partialLinemap);
+		}
+	}
+
+	/**
+	 * Drops the line mappings of the replaced classes and appends the ones of the newly decompiled classes.
+	 */
+	private static void patchLinemap(Path linemap, Path partialLinemap, Set<String> replaced) throws IOException {
+		List<String> lines = new ArrayList<>();
+		boolean keep = true;
+
+		for (String line : Files.readAllLines(linemap, StandardCharsets.UTF_8)) {
+			if (!line.isEmpty() && line.charAt(0) != '\t') {
+				keep = !replaced.contains(DecompiledClassIndex.getTopLevelClass(line.split("\t")[0]));
+			}
+
+			if (keep) {
+				lines.add(line);
+			}
+		}
+
+		if (Files.exists(partialLinemap)) {
+			lines.addAll(Files.readAllLines(partialLinemap, StandardCharsets.UTF_8));
+		}
+
+		Files.write(linemap, lines, StandardCharsets.UTF_8);
+	}
+
+	private static String getSourceClass(String entryName) {
+		return DecompiledClassIndex.getTopLevelClass(entryName.endsWith(".java") ? entryName.substring(0, entryName.length() - 5) : entryName);
+	}
+
+	private static String getFileStamp(Path path) throws IOException {
+		return Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
 	}
 
 	private void remapLineNumbers(Path oldCompiledJar, Path linemap, Path linemappedJarDestination) throws IOException {
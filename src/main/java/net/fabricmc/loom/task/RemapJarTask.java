@@ -27,11 +27,7 @@ package net.fabricmc.loom.task;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.Reader;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.AbstractMap;
@@ -41,11 +37,9 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
@@ -69,7 +63,6 @@ import org.gradle.api.tasks.TaskAction;
 import org.gradle.jvm.tasks.Jar;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
-import org.zeroturnaround.zip.ZipUtil;
 
 import net.fabricmc.loom.LoomGradleExtension;
 import net.fabricmc.loom.build.JarRemapper;
@@ -81,11 +74,11 @@ import net.fabricmc.loom.build.nesting.NestedDependencyProvider;
 import net.fabricmc.loom.build.nesting.NestedJarPathProvider;
 import net.fabricmc.loom.build.nesting.NestedJarProvider;
 import net.fabricmc.loom.configuration.accesswidener.AccessWidenerJarProcessor;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsIndex;
 import net.fabricmc.loom.configuration.providers.mappings.MappingsProvider;
 import net.fabricmc.loom.util.Constants;
 import net.fabricmc.loom.util.SourceRemapper;
 import net.fabricmc.loom.util.TinyRemapperMappingsHelper;
-import net.fabricmc.loom.util.ZipReprocessorUtil;
 import net.fabricmc.loom.util.gradle.GradleSupport;
 import net.fabricmc.mapping.tree.ClassDef;
 import net.fabricmc.mapping.tree.FieldDef;
@@ -138,66 +131,39 @@ public class RemapJarTask extends Jar {
 
 	private ReferenceRemapper createReferenceRemapper(LoomGradleExtension extension, String from, String to) throws IOException {
 		TinyTree mappings = extension.shouldGenerateSrgTiny() ? extension.getMappingsProvider().getMappingsWithSrg() : extension.getMappingsProvider().getMappings();
+		// Shared with every other task remapping against the same mappings
+		MappingsIndex index = MappingsIndex.of(mappings);
 
 		return new SimpleReferenceRemapper(new SimpleReferenceRemapper.Remapper() {
 			@Override
 			@Nullable
 			public String mapClass(String value) {
-				return mappings.getClasses().stream()
-						.filter(classDef -> Objects.equals(classDef.getName(from), value))
-						.findFirst()
-						.map(classDef -> classDef.getName(to))
-						.orElse(null);
+				ClassDef classDef = index.getClass(from, value);
+				return classDef != null ? classDef.getName(to) : null;
 			}
 
 			@Override
 			@Nullable
 			public String mapMethod(@Nullable String className, String methodName, String methodDescriptor) {
-				if (className != null) {
-					Optional<ClassDef> classDef = mappings.getClasses().stream()
-							.filter(c -> Objects.equals(c.getName(from), className))
-							.findFirst();
-
-					if (classDef.isPresent()) {
-						for (MethodDef methodDef : classDef.get().getMethods()) {
-							if (Objects.equals(methodDef.getName(from), methodName) && Objects.equals(methodDef.getDescriptor(from), methodDescriptor)) {
-								return methodDef.getName(to);
-							}
-						}
-					}
+				MethodDef methodDef = className != null ? index.getMethod(from, className, methodName, methodDescriptor) : null;
+
+				if (methodDef == null) {
+					methodDef = index.findMethod(from, methodName, methodDescriptor);
 				}
 
-				return mappings.getClasses().stream()
-						.flatMap(classDef -> classDef.getMethods().stream())
-						.filter(methodDef -> Objects.equals(methodDef.getName(from), methodName) && Objects.equals(methodDef.getDescriptor(from), methodDescriptor))
-						.findFirst()
-						.map(methodDef -> methodDef.getName(to))
-						.orElse(null);
+				return methodDef != null ? methodDef.getName(to) : null;
 			}
 
 			@Override
 			@Nullable
 			public String mapField(@Nullable String className, String fieldName, String fieldDescriptor) {
-				if (className != null) {
-					Optional<ClassDef> classDef = mappings.getClasses().stream()
-							.filter(c -> Objects.equals(c.getName(from), className))
-							.findFirst();
-
-					if (classDef.isPresent()) {
-						for (FieldDef fieldDef : classDef.get().getFields()) {
-							if (Objects.equals(fieldDef.getName(from), fieldName) && Objects.equals(fieldDef.getDescriptor(from), fieldDescriptor)) {
-								return fieldDef.getName(to);
-							}
-						}
-					}
+				FieldDef fieldDef = className != null ? index.getField(from, className, fieldName, fieldDescriptor) : null;
+
+				if (fieldDef == null) {
+					fieldDef = index.findField(from, fieldName, fieldDescriptor);
 				}
 
-				return mappings.getClasses().stream()
-						.flatMap(classDef -> classDef.getFields().stream())
-						.filter(fieldDef -> Objects.equals(fieldDef.getName(from), fieldName) && Objects.equals(fieldDef.getDescriptor(from), fieldDescriptor))
-						.findFirst()
-						.map(fieldDef -> fieldDef.getName(to))
-						.orElse(null);
+				return fieldDef != null ? fieldDef.getName(to) : null;
 			}
 		});
 	}
@@ -258,73 +224,53 @@ public class RemapJarTask extends Jar {
 
 					return null;
 				})
-				.complete((data, accessWidener) -> {
-					if (!Files.exists(output)) {
-						throw new RuntimeException("Failed to remap " + input + " to " + output + " - file missing!");
-					}
-
-					if (MixinRefmapHelper.addRefmapName(extension.getRefmapName(), output)) {
+				.transform(entries -> {
+					if (MixinRefmapHelper.addRefmapName(extension.getRefmapName(), entries)) {
 						project.getLogger().debug("Transformed mixin reference maps in output JAR!");
 					}
 
 					if (!toM.equals("intermediary")) {
-						try {
-							remapRefmap(extension, output, "intermediary", toM);
-						} catch (IOException e) {
-							throw new RuntimeException("Failed to remap refmap jar", e);
-						}
+						remapRefmap(extension, entries, "intermediary", toM);
 					}
 
 					if (getAddNestedDependencies().getOrElse(false)) {
-						JarNester.nestJars(nestedJarProvider.provide(), output.toFile(), project.getLogger());
-					}
-
-					if (accessWidener != null) {
-						boolean replaced = ZipUtil.replaceEntry(data.output.toFile(), accessWidener.getLeft(), accessWidener.getRight());
-						Preconditions.checkArgument(replaced, "Failed to remap access widener");
+						JarNester.nestJars(nestedJarProvider.provide(), entries, output.getFileName().toString(), project.getLogger());
 					}
-
-					if (isReproducibleFileOrder() || !isPreserveFileTimestamps()) {
-						try {
-							ZipReprocessorUtil.reprocessZip(output.toFile(), isReproducibleFileOrder(), isPreserveFileTimestamps());
-						} catch (IOException e) {
-							throw new RuntimeException("Failed to re-process jar", e);
-						}
+				})
+				.writeOptions(isReproducibleFileOrder(), isPreserveFileTimestamps())
+				.complete((data, accessWidener) -> {
+					if (!Files.exists(output)) {
+						throw new RuntimeException("Failed to remap " + input + " to " + output + " - file missing!");
 					}
 				});
 	}
 
-	private void remapRefmap(LoomGradleExtension extension, Path output, String from, String to) throws IOException {
-		try (FileSystem fs = FileSystems.newFileSystem(URI.create("jar:" + output.toUri()), ImmutableMap.of("create", false))) {
-			Path refmapPath = fs.getPath(extension.getRefmapName());
-
-			if (Files.exists(refmapPath)) {
-				try (Reader refmapReader = Files.newBufferedReader(refmapPath, StandardCharsets.UTF_8)) {
-					Gson gson = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
-					JsonObject refmapElement = gson.fromJson(refmapReader, JsonObject.class);
-					refmapElement = RefmapRemapper.remap(new Remapper() {
-						ReferenceRemapper remapper = createReferenceRemapper(extension, from, to);
-
-						@Override
-						@Nullable
-						public MappingsRemapper remapMappings() {
-							return className -> remapper;
-						}
+	private void remapRefmap(LoomGradleExtension extension, Map<String, byte[]> entries, String from, String to) throws IOException {
+		byte[] refmap = entries.get(extension.getRefmapName());
 
-						@Override
-						@Nullable
-						public Map.Entry<String, @Nullable MappingsRemapper> remapMappingsData(String data) {
-							if (Objects.equals(data, "named:intermediary")) {
-								return new AbstractMap.SimpleEntry<>(Objects.equals(to, "srg") ? "searge" : data, remapMappings());
-							}
+		if (refmap != null) {
+			Gson gson = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
+			JsonObject refmapElement = gson.fromJson(new String(refmap, StandardCharsets.UTF_8), JsonObject.class);
+			refmapElement = RefmapRemapper.remap(new Remapper() {
+				ReferenceRemapper remapper = createReferenceRemapper(extension, from, to);
 
-							return null;
-						}
-					}, refmapElement);
-					Files.delete(refmapPath);
-					Files.write(refmapPath, gson.toJson(refmapElement).getBytes(StandardCharsets.UTF_8));
+				@Override
+				@Nullable
+				public MappingsRemapper remapMappings() {
+					return className -> remapper;
 				}
-			}
+
+				@Override
+				@Nullable
+				public Map.Entry<String, @Nullable MappingsRemapper> remapMappingsData(String data) {
+					if (Objects.equals(data, "named:intermediary")) {
+						return new AbstractMap.SimpleEntry<>(Objects.equals(to, "srg") ? "searge" : data, remapMappings());
+					}
+
+					return null;
+				}
+			}, refmapElement);
+			entries.put(extension.getRefmapName(), gson.toJson(refmapElement).getBytes(StandardCharsets.UTF_8));
 		}
 	}
 
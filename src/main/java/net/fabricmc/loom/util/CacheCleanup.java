@@ -0,0 +1,104 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deletes the entries of the caches in the Gradle user home that haven't been used for a while. Those caches are keyed
+ * by their inputs, so every mappings, decompiler or access transformer change otherwise leaves the old entries behind.
+ *
+ * <p>The modification time of an entry records when it was last used, refreshed at most once a day by
+ * {@link #markUsed(Path)}, and each cache directory is swept at most once a day.
+ */
+public class CacheCleanup {
+	/**
+	 * Matches how long Gradle keeps unused entries in its own caches.
+	 */
+	private static final long MAX_UNUSED_AGE = TimeUnit.DAYS.toMillis(30);
+	private static final long INTERVAL = TimeUnit.DAYS.toMillis(1);
+	private static final String MARKER = ".last-cleanup";
+
+	private CacheCleanup() { }
+
+	public static void markUsed(Path entry) {
+		long now = System.currentTimeMillis();
+
+		try {
+			if (now - Files.getLastModifiedTime(entry).toMillis() > INTERVAL) {
+				Files.setLastModifiedTime(entry, FileTime.fromMillis(now));
+			}
+		} catch (IOException e) {
+			// At worst the entry is deleted and created again later
+		}
+	}
+
+	/**
+	 * Deletes the entries that match the filter at the given depth below the directory and haven't been used for
+	 * {@link #MAX_UNUSED_AGE}, unless the directory was already swept in the last day.
+	 */
+	public static void cleanup(Path directory, int depth, Predicate<Path> filter) {
+		Path marker = directory.resolve(MARKER);
+		long now = System.currentTimeMillis();
+
+		try {
+			if (Files.exists(marker) && now - Files.getLastModifiedTime(marker).toMillis() < INTERVAL) {
+				return;
+			}
+
+			Files.createDirectories(directory);
+			Files.write(marker, new byte[0]);
+
+			List<Path> unused;
+
+			try (Stream<Path> entries = Files.find(directory, depth, (path, attributes) -> path.getNameCount() - directory.getNameCount() == depth
+					&& filter.test(path) && now - attributes.lastModifiedTime().toMillis() > MAX_UNUSED_AGE)) {
+				unused = entries.collect(Collectors.toList());
+			}
+
+			for (Path entry : unused) {
+				try {
+					if (Files.isDirectory(entry)) {
+						Files.walkFileTree(entry, new DeletingFileVisitor());
+					} else {
+						Files.deleteIfExists(entry);
+					}
+				} catch (IOException e) {
+					// Still open somewhere, tried again on the next sweep
+				}
+			}
+		} catch (IOException e) {
+			// Tried again on the next sweep
+		}
+	}
+}
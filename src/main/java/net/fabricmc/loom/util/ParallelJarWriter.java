@@ -0,0 +1,175 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes a jar that many threads add entries to at once. Each entry is deflated on the thread that adds it and put on a
+ * lock-free queue. Whichever adding thread finds the writer free appends the queued entries to the jar as is, the
+ * others carry on right away, so there is a single writer without a thread of its own to leak.
+ *
+ * <p>At most {@value #MAX_QUEUED_BYTES} compressed bytes wait in the queue, threads adding entries faster than the
+ * disk takes them block until the writer catches up.
+ *
+ * <p>Entries are written in the order they are added, parent directory entries are added as needed. A failure to
+ * write is thrown by {@link #close()}.
+ */
+public class ParallelJarWriter implements Closeable {
+	private static final int MAX_QUEUED_BYTES = 32 * 1024 * 1024;
+
+	private final ZipArchiveOutputStream out;
+	private final Queue<ZipReprocessorUtil.DeflatedEntry> queue = new ConcurrentLinkedQueue<>();
+	private final Semaphore queuedBytes = new Semaphore(MAX_QUEUED_BYTES);
+	private final ReentrantLock writer = new ReentrantLock();
+	private final Set<String> directories = new HashSet<>();
+	private volatile boolean closed = false;
+	private volatile IOException failure;
+
+	public ParallelJarWriter(Path path, @Nullable Manifest manifest) throws IOException {
+		this(new ZipArchiveOutputStream(path.toFile()), manifest);
+	}
+
+	public ParallelJarWriter(OutputStream out, @Nullable Manifest manifest) throws IOException {
+		this(new ZipArchiveOutputStream(out), manifest);
+	}
+
+	private ParallelJarWriter(ZipArchiveOutputStream out, @Nullable Manifest manifest) throws IOException {
+		this.out = out;
+
+		if (manifest != null) {
+			ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+			manifest.write(manifestBytes);
+			add(JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+		}
+	}
+
+	/**
+	 * Deflates an entry on the calling thread and queues it to be written.
+	 */
+	public void add(String name, byte[] data) {
+		add(name, data, System.currentTimeMillis());
+	}
+
+	/**
+	 * Deflates an entry with the given modification time on the calling thread and queues it to be written.
+	 */
+	public void add(String name, byte[] data, long time) {
+		if (closed) {
+			throw new IllegalStateException("Jar writer is already closed");
+		}
+
+		ZipArchiveEntry entry = new ZipArchiveEntry(name);
+		entry.setTime(time);
+		ZipReprocessorUtil.DeflatedEntry deflated = ZipReprocessorUtil.deflate(entry, data);
+
+		queuedBytes.acquireUninterruptibly(queuedSize(deflated));
+		queue.add(deflated);
+
+		// Whoever lets go of the writer checks the queue again, so no entry is left behind
+		while (!queue.isEmpty() && writer.tryLock()) {
+			try {
+				writeQueued();
+			} finally {
+				writer.unlock();
+			}
+		}
+	}
+
+	private static int queuedSize(ZipReprocessorUtil.DeflatedEntry deflated) {
+		return Math.min(deflated.data.length, MAX_QUEUED_BYTES);
+	}
+
+	private void writeQueued() {
+		ZipReprocessorUtil.DeflatedEntry deflated;
+
+		while ((deflated = queue.poll()) != null) {
+			try {
+				// Once broken the remaining entries are only dropped, close() reports the failure
+				if (failure == null) {
+					write(deflated);
+				}
+			} catch (IOException e) {
+				failure = e;
+			} finally {
+				queuedBytes.release(queuedSize(deflated));
+			}
+		}
+	}
+
+	private void write(ZipReprocessorUtil.DeflatedEntry deflated) throws IOException {
+		String name = deflated.entry.getName();
+
+		for (int i = name.indexOf('/'); i >= 0 && i < name.length() - 1; i = name.indexOf('/', i + 1)) {
+			String directory = name.substring(0, i + 1);
+
+			if (directories.add(directory)) {
+				ZipArchiveEntry entry = new ZipArchiveEntry(directory);
+				entry.setTime(deflated.entry.getTime());
+				out.putArchiveEntry(entry);
+				out.closeArchiveEntry();
+			}
+		}
+
+		out.addRawArchiveEntry(deflated.entry, new ByteArrayInputStream(deflated.data));
+	}
+
+	/**
+	 * Writes every queued entry and closes the jar.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		writer.lock();
+
+		try {
+			writeQueued();
+			out.close();
+		} finally {
+			writer.unlock();
+		}
+
+		if (failure != null) {
+			throw new IOException("Failed to write jar", failure);
+		}
+	}
+}
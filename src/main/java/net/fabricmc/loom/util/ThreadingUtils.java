@@ -27,19 +27,113 @@ package net.fabricmc.loom.util;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Stopwatch;
+import org.gradle.api.Project;
 
 public class ThreadingUtils {
+	public static final String THREADS_PROPERTY = "fabric.loom.threads";
+
+	private static final LongAdder BUSY_NANOS = new LongAdder();
+	private static int parallelism = Runtime.getRuntime().availableProcessors();
+	private static ForkJoinPool executor;
+
+	/**
+	 * Reads the thread count for the shared executor from the {@value #THREADS_PROPERTY} property.
+	 *
+	 * <p>The executor is never shut down explicitly: its workers are daemon threads which the pool retires once they
+	 * have been idle for a few seconds, so it needs no build-finished hook (which would break with the configuration
+	 * cache and in composite builds). A {@code BuildService} would be the natural owner, but it isn't part of the Gradle
+	 * API loom compiles against.
+	 */
+	public static synchronized void configure(Project project) {
+		Object threads = project.findProperty(THREADS_PROPERTY);
+
+		if (threads != null) {
+			try {
+				int requested = Math.max(1, Integer.parseInt(threads.toString().trim()));
+
+				if (requested != parallelism) {
+					parallelism = requested;
+
+					if (executor != null) {
+						// Tasks already submitted still finish, new ones go to a pool of the requested size
+						executor.shutdown();
+						executor = null;
+					}
+				}
+			} catch (NumberFormatException e) {
+				project.getLogger().warn("Ignoring invalid value for " + THREADS_PROPERTY + ": " + threads);
+			}
+		}
+	}
+
+	/**
+	 * @return the work-stealing executor shared by every loom project in this Gradle daemon, created on first use
+	 */
+	public static synchronized ForkJoinPool executor() {
+		if (executor == null || executor.isShutdown()) {
+			ClassLoader classLoader = ThreadingUtils.class.getClassLoader();
+			executor = new ForkJoinPool(parallelism, pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("Loom Worker " + thread.getPoolIndex());
+				// Keep the plugin class loader visible to service lookups made from the workers
+				thread.setContextClassLoader(classLoader);
+				return thread;
+			}, null, false);
+		}
+
+		return executor;
+	}
+
+	/**
+	 * @return the number of tasks waiting to be picked up by a worker of the shared executor
+	 */
+	public static synchronized long getQueueDepth() {
+		return executor == null ? 0 : executor.getQueuedSubmissionCount() + executor.getQueuedTaskCount();
+	}
+
+	/**
+	 * @return the total time the workers of the shared executor have spent running tasks, in nanoseconds
+	 */
+	public static long getBusyNanos() {
+		return BUSY_NANOS.sum();
+	}
+
+	private static <T> CompletableFuture<T> submit(UnsafeCallable<T> job) {
+		return CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+
+			try {
+				return job.call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Throwable throwable) {
+				throw new RuntimeException(throwable);
+			} finally {
+				BUSY_NANOS.add(System.nanoTime() - start);
+			}
+		}, executor());
+	}
+
+	/**
+	 * Runs a job on the shared executor without waiting for it.
+	 */
+	public static CompletableFuture<Void> async(UnsafeRunnable job) {
+		return submit(() -> {
+			job.run();
+			return null;
+		});
+	}
+
 	public static <T> void run(T[] values, UnsafeConsumer<T> action) {
 		run(Arrays.stream(values)
 				.<UnsafeRunnable>map(t -> () -> action.accept(t))
@@ -57,28 +151,12 @@ public class ThreadingUtils {
 	}
 
 	public static void run(Collection<UnsafeRunnable> jobs) {
-		try {
-			ExecutorService service = Executors.newFixedThreadPool(Math.min(jobs.size(), Runtime.getRuntime().availableProcessors() / 2));
-			List<Future<?>> futures = new LinkedList<>();
-
-			for (UnsafeRunnable runnable : jobs) {
-				futures.add(service.submit(() -> {
-					try {
-						runnable.run();
-					} catch (Throwable throwable) {
-						throw new RuntimeException(throwable);
-					}
-				}));
-			}
-
-			for (Future<?> future : futures) {
-				future.get();
-			}
-
-			service.shutdownNow();
-		} catch (InterruptedException | ExecutionException e) {
-			throw new RuntimeException(e);
-		}
+		get(jobs.stream()
+				.<UnsafeCallable<Void>>map(runnable -> () -> {
+					runnable.run();
+					return null;
+				})
+				.collect(Collectors.toList()));
 	}
 
 	public static <T, R> List<R> get(Collection<T> values, Function<T, R> action) {
@@ -94,25 +172,18 @@ public class ThreadingUtils {
 
 	public static <T> List<T> get(Collection<UnsafeCallable<T>> jobs) {
 		try {
-			ExecutorService service = Executors.newFixedThreadPool(Math.min(jobs.size(), Runtime.getRuntime().availableProcessors() / 2));
-			List<Future<T>> futures = new LinkedList<>();
-			List<T> result = new ArrayList<>();
-
-			for (UnsafeCallable<T> runnable : jobs) {
-				futures.add(service.submit(() -> {
-					try {
-						return runnable.call();
-					} catch (Throwable throwable) {
-						throw new RuntimeException(throwable);
-					}
-				}));
+			List<CompletableFuture<T>> futures = new ArrayList<>(jobs.size());
+			List<T> result = new ArrayList<>(jobs.size());
+
+			for (UnsafeCallable<T> callable : jobs) {
+				futures.add(submit(callable));
 			}
 
-			for (Future<T> future : futures) {
+			// Waiting on a CompletableFuture from a worker compensates the pool, so nested calls can't starve it
+			for (CompletableFuture<T> future : futures) {
 				result.add(future.get());
 			}
 
-			service.shutdownNow();
 			return result;
 		} catch (InterruptedException | ExecutionException e) {
 			throw new RuntimeException(e);
@@ -138,7 +209,6 @@ public class ThreadingUtils {
 	public static class TaskCompleter implements Function<Throwable, Void> {
 		Stopwatch stopwatch = Stopwatch.createUnstarted();
 		List<CompletableFuture<?>> tasks = new ArrayList<>();
-		ExecutorService service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 		List<UnsafeConsumer<Stopwatch>> completionListener = new ArrayList<>();
 
 		public TaskCompleter add(UnsafeRunnable job) {
@@ -146,13 +216,10 @@ public class ThreadingUtils {
 				stopwatch.start();
 			}
 
-			tasks.add(CompletableFuture.runAsync(() -> {
-				try {
-					job.run();
-				} catch (Throwable throwable) {
-					throw new RuntimeException(throwable);
-				}
-			}, service).exceptionally(this));
+			tasks.add(submit(() -> {
+				job.run();
+				return null;
+			}).exceptionally(this));
 
 			return this;
 		}
@@ -165,7 +232,6 @@ public class ThreadingUtils {
 		public void complete() {
 			try {
 				CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).exceptionally(this).get();
-				service.shutdownNow();
 
 				if (stopwatch.isRunning()) {
 					stopwatch.stop();
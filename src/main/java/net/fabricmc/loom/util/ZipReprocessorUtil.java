@@ -24,18 +24,32 @@
 
 package net.fabricmc.loom.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.attribute.FileTime;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 
 public class ZipReprocessorUtil {
 	/**
@@ -45,49 +59,139 @@ public class ZipReprocessorUtil {
 
 	private ZipReprocessorUtil() { }
 
+	/**
+	 * Rewrites a zip with a reproducible entry order and/or constant timestamps. Only the metadata changes, so the
+	 * compressed data of every entry is copied over as is. The zip is written to a temporary file next to it, which
+	 * then replaces the original.
+	 */
 	public static void reprocessZip(File file, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
 		if (!reproducibleFileOrder && preserveFileTimestamps) {
 			return;
 		}
 
-		try (ZipFile zipFile = new ZipFile(file)) {
-			ZipEntry[] entries;
+		Path path = file.toPath();
+		Path tempPath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
 
-			if (reproducibleFileOrder) {
-				entries = zipFile.stream().sorted(Comparator.comparing(ZipEntry::getName)).toArray(ZipEntry[]::new);
-			} else {
-				entries = zipFile.stream().toArray(ZipEntry[]::new);
-			}
+		try {
+			try (ZipFile zipFile = new ZipFile(file);
+					ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(tempPath.toFile())) {
+				List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntriesInPhysicalOrder());
 
-			ByteArrayOutputStream outZip = new ByteArrayOutputStream(zipFile.size());
+				if (reproducibleFileOrder) {
+					entries.sort(Comparator.comparing(ZipArchiveEntry::getName));
+				}
 
-			try (ZipOutputStream zipOutputStream = new ZipOutputStream(outZip)) {
-				for (ZipEntry entry : entries) {
-					ZipEntry newEntry = entry;
+				for (ZipArchiveEntry entry : entries) {
+					ZipArchiveEntry newEntry = entry;
 
 					if (!preserveFileTimestamps) {
-						newEntry = new ZipEntry(entry.getName());
+						newEntry = new ZipArchiveEntry(entry.getName());
+						newEntry.setMethod(entry.getMethod());
+						newEntry.setCrc(entry.getCrc());
+						newEntry.setSize(entry.getSize());
+						newEntry.setCompressedSize(entry.getCompressedSize());
 						newEntry.setTime(CONSTANT_TIME_FOR_ZIP_ENTRIES);
-						newEntry.setLastModifiedTime(FileTime.fromMillis(CONSTANT_TIME_FOR_ZIP_ENTRIES));
-						newEntry.setLastAccessTime(FileTime.fromMillis(CONSTANT_TIME_FOR_ZIP_ENTRIES));
 					}
 
-					zipOutputStream.putNextEntry(newEntry);
-					InputStream inputStream = zipFile.getInputStream(entry);
-					byte[] buf = new byte[1024];
-					int length;
-
-					while ((length = inputStream.read(buf)) > 0) {
-						zipOutputStream.write(buf, 0, length);
+					try (InputStream in = zipFile.getRawInputStream(entry)) {
+						zipOutputStream.addRawArchiveEntry(newEntry, in);
 					}
-
-					zipOutputStream.closeEntry();
 				}
 			}
 
-			try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-				outZip.writeTo(fileOutputStream);
+			moveReplacing(tempPath, path);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * Writes the given entries into a new zip, adding directory entries for their parents, in the same way the
+	 * entries of a reprocessed zip are ordered and timestamped. Entries are deflated in parallel on the shared
+	 * executor and then written in order.
+	 */
+	public static void writeZip(File file, Map<String, byte[]> entries, boolean reproducibleFileOrder, boolean preserveFileTimestamps) throws IOException {
+		Set<String> names = new LinkedHashSet<>();
+
+		for (String name : entries.keySet()) {
+			for (int i = name.indexOf('/'); i >= 0 && i < name.length() - 1; i = name.indexOf('/', i + 1)) {
+				names.add(name.substring(0, i + 1));
+			}
+
+			names.add(name);
+		}
+
+		List<String> ordered = new ArrayList<>(names);
+
+		if (reproducibleFileOrder) {
+			Collections.sort(ordered);
+		}
+
+		long time = preserveFileTimestamps ? System.currentTimeMillis() : CONSTANT_TIME_FOR_ZIP_ENTRIES;
+		List<DeflatedEntry> deflatedEntries = ThreadingUtils.get(ordered, name -> {
+			ZipArchiveEntry entry = new ZipArchiveEntry(name);
+			entry.setTime(time);
+			return entry.isDirectory() ? new DeflatedEntry(entry, null) : deflate(entry, entries.get(name));
+		});
+
+		Path path = file.toPath();
+		Path tempPath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(tempPath.toFile())) {
+				for (DeflatedEntry deflatedEntry : deflatedEntries) {
+					if (deflatedEntry.data == null) {
+						zipOutputStream.putArchiveEntry(deflatedEntry.entry);
+						zipOutputStream.closeArchiveEntry();
+					} else {
+						zipOutputStream.addRawArchiveEntry(deflatedEntry.entry, new ByteArrayInputStream(deflatedEntry.data));
+					}
+				}
 			}
+
+			moveReplacing(tempPath, path);
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	static DeflatedEntry deflate(ZipArchiveEntry entry, byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 2));
+
+		try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+			deflaterOut.write(bytes);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		} finally {
+			deflater.end();
+		}
+
+		entry.setMethod(ZipEntry.DEFLATED);
+		entry.setCrc(crc.getValue());
+		entry.setSize(bytes.length);
+		entry.setCompressedSize(out.size());
+		return new DeflatedEntry(entry, out.toByteArray());
+	}
+
+	public static void moveReplacing(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	static class DeflatedEntry {
+		final ZipArchiveEntry entry;
+		final byte[] data;
+
+		DeflatedEntry(ZipArchiveEntry entry, byte[] data) {
+			this.entry = entry;
+			this.data = data;
 		}
 	}
 }
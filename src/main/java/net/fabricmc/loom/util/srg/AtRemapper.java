@@ -41,7 +41,7 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.logging.log4j.util.Strings;
 import org.gradle.api.logging.Logger;
 
-import net.fabricmc.loom.util.function.CollectionUtil;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsIndex;
 import net.fabricmc.mapping.tree.TinyTree;
 
 /**
@@ -55,50 +55,50 @@ public final class AtRemapper {
 			Path atPath = fs.getPath("META-INF/accesstransformer.cfg");
 
 			if (Files.exists(atPath)) {
-				String atContent = new String(Files.readAllBytes(atPath), StandardCharsets.UTF_8);
-
-				String[] lines = atContent.split("\n");
-				List<String> output = new ArrayList<>(lines.length);
-
-				for (int i = 0; i < lines.length; i++) {
-					String line = lines[i].trim();
-
-					if (line.startsWith("#") || Strings.isBlank(line)) {
-						output.add(i, line);
-						continue;
-					}
-
-					String[] parts = line.split("\\s+");
-
-					if (parts.length < 2) {
-						logger.warn("Invalid AT Line: " + line);
-						output.add(i, line);
-						continue;
-					}
-
-					String name = parts[1].replace('.', '/');
-					parts[1] = CollectionUtil.find(
-							mappings.getClasses(),
-							def -> def.getName("srg").equals(name)
-					).map(def -> def.getName("named")).orElse(name).replace('/', '.');
-
-					if (parts.length >= 3) {
-						if (parts[2].contains("(")) {
-							parts[2] = parts[2].substring(0, parts[2].indexOf('(')) + remapDescriptor(parts[2].substring(parts[2].indexOf('(')), s -> {
-								return CollectionUtil.find(
-										mappings.getClasses(),
-										def -> def.getName("srg").equals(s)
-								).map(def -> def.getName("named")).orElse(s);
-							});
-						}
-					}
-
-					output.add(i, String.join(" ", parts));
-				}
+				Files.write(atPath, remap(logger, Files.readAllBytes(atPath), mappings), StandardOpenOption.CREATE);
+			}
+		}
+	}
+
+	/**
+	 * Remaps the contents of an AT, so it can be combined with other edits to a jar held in memory.
+	 */
+	public static byte[] remap(Logger logger, byte[] at, TinyTree mappings) {
+		String atContent = new String(at, StandardCharsets.UTF_8);
+		MappingsIndex index = MappingsIndex.of(mappings);
+
+		String[] lines = atContent.split("\n");
+		List<String> output = new ArrayList<>(lines.length);
+
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i].trim();
+
+			if (line.startsWith("#") || Strings.isBlank(line)) {
+				output.add(i, line);
+				continue;
+			}
+
+			String[] parts = line.split("\\s+");
+
+			if (parts.length < 2) {
+				logger.warn("Invalid AT Line: " + line);
+				output.add(i, line);
+				continue;
+			}
 
-				Files.write(atPath, String.join("\n", output).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE);
+			String name = parts[1].replace('.', '/');
+			parts[1] = index.mapClass("srg", "named", name).replace('/', '.');
+
+			if (parts.length >= 3) {
+				if (parts[2].contains("(")) {
+					parts[2] = parts[2].substring(0, parts[2].indexOf('(')) + remapDescriptor(parts[2].substring(parts[2].indexOf('(')), s -> index.mapClass("srg", "named", s));
+				}
 			}
+
+			output.add(i, String.join(" ", parts));
 		}
+
+		return String.join("\n", output).getBytes(StandardCharsets.UTF_8);
 	}
 
 	private static String remapDescriptor(String original, UnaryOperator<String> classMappings) {
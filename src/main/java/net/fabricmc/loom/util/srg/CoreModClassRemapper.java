@@ -24,8 +24,11 @@
 
 package net.fabricmc.loom.util.srg;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
@@ -39,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
@@ -47,7 +51,7 @@ import com.google.gson.JsonObject;
 import org.apache.logging.log4j.util.Strings;
 import org.gradle.api.logging.Logger;
 
-import net.fabricmc.loom.util.function.CollectionUtil;
+import net.fabricmc.loom.configuration.providers.mappings.MappingsIndex;
 import net.fabricmc.mapping.tree.TinyTree;
 
 /**
@@ -87,9 +91,55 @@ public final class CoreModClassRemapper {
 		}
 	}
 
+	/**
+	 * Remaps the coremods of a jar whose entries are held in memory, so it can be combined with other edits into a single rewrite.
+	 *
+	 * @param entries the entries of the jar by name, the remapped coremods are put back into it
+	 */
+	public static void remapJar(Map<String, byte[]> entries, String name, TinyTree mappings, Logger logger) {
+		byte[] coremodsJsonBytes = entries.get("META-INF/coremods.json");
+
+		if (coremodsJsonBytes == null) {
+			logger.info(":no coremods in " + name);
+			return;
+		}
+
+		JsonObject coremodsJson = new Gson().fromJson(new String(coremodsJsonBytes, StandardCharsets.UTF_8), JsonObject.class);
+
+		for (Map.Entry<String, JsonElement> nameFileEntry : coremodsJson.entrySet()) {
+			String file = nameFileEntry.getValue().getAsString();
+			String entryName = file.startsWith("/") ? file.substring(1) : file;
+			byte[] js = entries.get(entryName);
+
+			if (js != null) {
+				logger.info(":remapping coremod '" + file + "'");
+				List<String> output = remap(readLines(js), mappings);
+
+				if (output != null) {
+					entries.put(entryName, String.join(Strings.LINE_SEPARATOR, output).getBytes(StandardCharsets.UTF_8));
+				}
+			} else {
+				logger.warn("Coremod '" + file + "' listed in coremods.json but not found");
+			}
+		}
+	}
+
 	public static void remap(Path js, TinyTree mappings) throws IOException {
-		List<String> lines = Files.readAllLines(js);
+		List<String> output = remap(Files.readAllLines(js), mappings);
+
+		if (output != null) {
+			try (Writer writer = Files.newBufferedWriter(js, StandardCharsets.UTF_8, StandardOpenOption.WRITE)) {
+				writer.write(String.join(Strings.LINE_SEPARATOR, output));
+			}
+		}
+	}
+
+	/**
+	 * @return the remapped lines, or null if no line changed
+	 */
+	private static List<String> remap(List<String> lines, TinyTree mappings) {
 		List<String> output = new ArrayList<>(lines);
+		MappingsIndex index = MappingsIndex.of(mappings);
 
 		for (int i = 0; i < lines.size(); i++) {
 			String line = lines.get(i);
@@ -97,9 +147,7 @@ public final class CoreModClassRemapper {
 
 			if (matcher.matches()) {
 				String className = matcher.group(2).replace('.', '/');
-				String remapped = CollectionUtil.find(mappings.getClasses(), def -> def.getName("srg").equals(className))
-						.map(def -> def.getName("named"))
-						.orElse(className);
+				String remapped = index.mapClass("srg", "named", className);
 
 				if (!className.equals(remapped)) {
 					output.set(i, matcher.group(1) + remapped.replace('/', '.') + matcher.group(3));
@@ -107,10 +155,14 @@ public final class CoreModClassRemapper {
 			}
 		}
 
-		if (!lines.equals(output)) {
-			try (Writer writer = Files.newBufferedWriter(js, StandardCharsets.UTF_8, StandardOpenOption.WRITE)) {
-				writer.write(String.join(Strings.LINE_SEPARATOR, output));
-			}
+		return lines.equals(output) ? null : output;
+	}
+
+	private static List<String> readLines(byte[] bytes) {
+		try (BufferedReader reader = new BufferedReader(new StringReader(new String(bytes, StandardCharsets.UTF_8)))) {
+			return reader.lines().collect(Collectors.toList());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 }
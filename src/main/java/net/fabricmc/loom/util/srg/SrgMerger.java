@@ -43,6 +43,7 @@ import org.cadixdev.lorenz.model.MethodMapping;
 import org.cadixdev.lorenz.model.TopLevelClassMapping;
 import org.jetbrains.annotations.Nullable;
 
+import net.fabricmc.loom.configuration.providers.mappings.MappingsIndex;
 import net.fabricmc.loom.util.function.CollectionUtil;
 import net.fabricmc.mapping.tree.ClassDef;
 import net.fabricmc.mapping.tree.FieldDef;
@@ -95,16 +96,17 @@ public final class SrgMerger {
 		TinyHeader header = new TinyHeader(namespaces, 2, 0, Collections.emptyMap());
 
 		List<TinyClass> classes = new ArrayList<>();
+		MappingsIndex index = MappingsIndex.of(foss);
 
 		for (TopLevelClassMapping klass : arr.getTopLevelClassMappings()) {
-			classToTiny(foss, namespaces, klass, classes::add, lenient);
+			classToTiny(foss, index, namespaces, klass, classes::add, lenient);
 		}
 
 		TinyFile file = new TinyFile(header, classes);
 		TinyV2Writer.write(file, out);
 	}
 
-	private static void classToTiny(TinyTree foss, List<String> namespaces, ClassMapping<?, ?> klass, Consumer<TinyClass> classConsumer, boolean lenient) {
+	private static void classToTiny(TinyTree foss, MappingsIndex index, List<String> namespaces, ClassMapping<?, ?> klass, Consumer<TinyClass> classConsumer, boolean lenient) {
 		String obf = klass.getFullObfuscatedName();
 		String srg = klass.getFullDeobfuscatedName();
 		ClassDef classDef = foss.getDefaultNamespaceClassMap().get(obf);
@@ -126,12 +128,12 @@ public final class SrgMerger {
 		List<TinyField> fields = new ArrayList<>();
 
 		for (MethodMapping method : klass.getMethodMappings()) {
-			MethodDef def = CollectionUtil.find(
-					classDef.getMethods(),
-					m -> m.getName("official").equals(method.getObfuscatedName()) && m.getDescriptor("official").equals(method.getObfuscatedDescriptor())
-			).orElse(nullOrThrow(lenient, () -> new MappingException("Missing method: " + method.getFullObfuscatedName() + " (srg: " + method.getFullDeobfuscatedName() + ")")));
+			MethodDef def = index.getMethod("official", obf, method.getObfuscatedName(), method.getObfuscatedDescriptor());
 
-			if (def == null) continue;
+			if (def == null) {
+				nullOrThrow(lenient, () -> new MappingException("Missing method: " + method.getFullObfuscatedName() + " (srg: " + method.getFullDeobfuscatedName() + ")"));
+				continue;
+			}
 
 			List<String> methodNames = CollectionUtil.map(
 					namespaces,
@@ -147,12 +149,12 @@ public final class SrgMerger {
 		}
 
 		for (FieldMapping field : klass.getFieldMappings()) {
-			FieldDef def = CollectionUtil.find(
-					classDef.getFields(),
-					f -> f.getName("official").equals(field.getObfuscatedName())
-			).orElse(nullOrThrow(lenient, () -> new MappingException("Missing field: " + field.getFullObfuscatedName() + " (srg: " + field.getFullDeobfuscatedName() + ")")));
+			FieldDef def = index.getField("official", obf, field.getObfuscatedName());
 
-			if (def == null) continue;
+			if (def == null) {
+				nullOrThrow(lenient, () -> new MappingException("Missing field: " + field.getFullObfuscatedName() + " (srg: " + field.getFullDeobfuscatedName() + ")"));
+				continue;
+			}
 
 			List<String> fieldNames = CollectionUtil.map(
 					namespaces,
@@ -166,7 +168,7 @@ public final class SrgMerger {
 		classConsumer.accept(tinyClass);
 
 		for (InnerClassMapping innerKlass : klass.getInnerClassMappings()) {
-			classToTiny(foss, namespaces, innerKlass, classConsumer, lenient);
+			classToTiny(foss, index, namespaces, innerKlass, classConsumer, lenient);
 		}
 	}
 
@@ -24,14 +24,21 @@
 
 package net.fabricmc.loom.util.srg;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.cadixdev.lorenz.io.srg.SrgWriter;
 import org.gradle.api.logging.Logger;
 
 import net.fabricmc.lorenztiny.TinyMappingsReader;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
 import net.fabricmc.mapping.tree.TinyTree;
 
 public class SrgNamedWriter {
@@ -44,4 +51,43 @@ public class SrgNamedWriter {
 			}
 		}
 	}
+
+	/**
+	 * Writes flat class, method and field name tables for the runtime naming service (YarnNamingService).
+	 * Each table is an int count followed by pairs of modified UTF-8 strings.
+	 */
+	public static void writeNamesTo(Path namesFile, TinyTree mappings, String from, String to) throws IOException {
+		Map<String, String> classes = new LinkedHashMap<>();
+		Map<String, String> methods = new LinkedHashMap<>();
+		Map<String, String> fields = new LinkedHashMap<>();
+
+		for (ClassDef classDef : mappings.getClasses()) {
+			classes.putIfAbsent(classDef.getName(from), classDef.getName(to));
+
+			for (MethodDef method : classDef.getMethods()) {
+				methods.putIfAbsent(method.getName(from), method.getName(to));
+			}
+
+			for (FieldDef field : classDef.getFields()) {
+				fields.putIfAbsent(field.getName(from), field.getName(to));
+			}
+		}
+
+		Files.deleteIfExists(namesFile);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(namesFile)))) {
+			writeNames(out, classes);
+			writeNames(out, methods);
+			writeNames(out, fields);
+		}
+	}
+
+	private static void writeNames(DataOutputStream out, Map<String, String> names) throws IOException {
+		out.writeInt(names.size());
+
+		for (Map.Entry<String, String> entry : names.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeUTF(entry.getValue());
+		}
+	}
 }
@@ -0,0 +1,104 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
+import java.nio.file.attribute.FileTime
+
+import net.fabricmc.loom.configuration.providers.mappings.IndexedTinyTree
+import spock.lang.Specification
+
+class IndexedTinyTreeTest extends Specification {
+    static final String MAPPINGS = [
+            "tiny\t2\t0\tofficial\tintermediary\tnamed",
+            "c\ta\tnet/minecraft/class_1\tnet/minecraft/Foo",
+            "\tc\tA foo.",
+            "\tf\tI\ta\tfield_1\tbar",
+            "\tm\t(Lb;)V\ta\tmethod_1\tbaz",
+            "\t\tp\t1\t\t\tvalue",
+            "c\tb\tnet/minecraft/class_2\tnet/minecraft/Bar",
+            ""
+    ].join("\n")
+
+    def "index matches the parsed mappings"() {
+        when:
+            def dir = Files.createTempDirectory("loom-index")
+            def tiny = dir.resolve("mappings.tiny")
+            tiny.text = MAPPINGS
+            def created = IndexedTinyTree.load(tiny)
+            def reopened = IndexedTinyTree.load(tiny)
+
+        then:
+            Files.exists(IndexedTinyTree.getIndexPath(tiny))
+            [created, reopened].every { tree ->
+                def foo = tree.getDefaultNamespaceClassMap().get("a")
+                def method = foo.methods.first()
+
+                tree.metadata.namespaces == ["official", "intermediary", "named"] &&
+                        tree.classes.size() == 2 &&
+                        foo.getName("named") == "net/minecraft/Foo" &&
+                        foo.comment == "A foo." &&
+                        foo.fields.first().getName("named") == "bar" &&
+                        method.getDescriptor("named") == "(Lnet/minecraft/Bar;)V" &&
+                        method.parameters.first().getName("named") == "value" &&
+                        method.parameters.first().localVariableIndex == 1
+            }
+            reopened.getClass("named", "net/minecraft/Bar").getName("official") == "b"
+            reopened.getClass("named", "net/minecraft/Baz") == null
+    }
+
+    def "index is kept when the mappings are only touched"() {
+        when:
+            def dir = Files.createTempDirectory("loom-index")
+            def tiny = dir.resolve("mappings.tiny")
+            tiny.text = MAPPINGS
+            IndexedTinyTree.load(tiny)
+            def index = IndexedTinyTree.getIndexPath(tiny)
+            def indexKey = Files.readAttributes(index, BasicFileAttributes).fileKey()
+            Files.setLastModifiedTime(tiny, FileTime.fromMillis(Files.getLastModifiedTime(tiny).toMillis() + 10000))
+            def reloaded = IndexedTinyTree.load(tiny)
+
+        then:
+            reloaded.getDefaultNamespaceClassMap().get("a").getName("named") == "net/minecraft/Foo"
+            Files.readAttributes(index, BasicFileAttributes).fileKey() == indexKey
+    }
+
+    def "index is rebuilt when the mappings change"() {
+        when:
+            def dir = Files.createTempDirectory("loom-index")
+            def tiny = dir.resolve("mappings.tiny")
+            tiny.text = MAPPINGS
+            IndexedTinyTree.load(tiny)
+            def modified = Files.getLastModifiedTime(tiny).toMillis()
+            tiny.text = MAPPINGS.replace("net/minecraft/Foo", "net/minecraft/Qux")
+            Files.setLastModifiedTime(tiny, FileTime.fromMillis(modified + 10000))
+            def reloaded = IndexedTinyTree.load(tiny)
+
+        then:
+            reloaded.getDefaultNamespaceClassMap().get("a").getName("named") == "net/minecraft/Qux"
+            Files.list(dir).count() == 2
+    }
+}
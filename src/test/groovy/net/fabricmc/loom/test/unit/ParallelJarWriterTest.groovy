@@ -0,0 +1,114 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.jar.Manifest
+import java.util.zip.ZipFile
+
+import net.fabricmc.loom.util.ParallelJarWriter
+import spock.lang.Specification
+
+class ParallelJarWriterTest extends Specification {
+    static final long TIME = new GregorianCalendar(2020, Calendar.JANUARY, 1, 12, 0, 0).timeInMillis
+
+    def "entries are written in order with their parent directories"() {
+        when:
+            def jar = Files.createTempDirectory("loom-jar-writer").resolve("test.jar")
+            def manifest = new Manifest()
+            manifest.mainAttributes.putValue("Manifest-Version", "1.0")
+
+            new ParallelJarWriter(jar, manifest).withCloseable { writer ->
+                writer.add("net/fabricmc/Foo.java", "class Foo {}".getBytes(StandardCharsets.UTF_8), TIME)
+                writer.add("net/Bar.java", "class Bar {}".getBytes(StandardCharsets.UTF_8), TIME)
+                writer.add("net/fabricmc/Baz.java", "class Baz {}".getBytes(StandardCharsets.UTF_8), TIME)
+            }
+
+            def zip = new ZipFile(jar.toFile())
+            def entries = Collections.list(zip.entries())
+
+        then:
+            entries*.name == [
+                    "META-INF/",
+                    "META-INF/MANIFEST.MF",
+                    "net/",
+                    "net/fabricmc/",
+                    "net/fabricmc/Foo.java",
+                    "net/Bar.java",
+                    "net/fabricmc/Baz.java"
+            ]
+            entries.findAll { it.name.startsWith("net/") }.every { it.time == TIME }
+            zip.getInputStream(zip.getEntry("net/Bar.java")).text == "class Bar {}"
+
+        cleanup:
+            zip?.close()
+    }
+
+    def "entries added from many threads are all written once"() {
+        when:
+            def jar = Files.createTempDirectory("loom-jar-writer").resolve("test.jar")
+
+            new ParallelJarWriter(jar, null).withCloseable { writer ->
+                (0..<8).collect { thread ->
+                    Thread.start {
+                        100.times { i -> writer.add("thread$thread/entry${i}.txt", "$thread:$i".getBytes(StandardCharsets.UTF_8)) }
+                    }
+                }*.join()
+            }
+
+            def zip = new ZipFile(jar.toFile())
+            def files = Collections.list(zip.entries()).findAll { !it.directory }
+
+        then:
+            files.size() == 800
+            files*.name.toSet().size() == 800
+            files.every { entry ->
+                def (thread, i) = entry.name.findAll(/\d+/)
+                zip.getInputStream(entry).text == "$thread:$i"
+            }
+
+        cleanup:
+            zip?.close()
+    }
+
+    def "a failed write is thrown when closing"() {
+        when:
+            def out = new OutputStream() {
+                @Override
+                void write(int b) throws IOException {
+                    throw new IOException("Disk full")
+                }
+            }
+
+            def writer = new ParallelJarWriter(out, null)
+            writer.add("Foo.java", "class Foo {}".getBytes(StandardCharsets.UTF_8))
+            writer.add("Bar.java", "class Bar {}".getBytes(StandardCharsets.UTF_8))
+            writer.close()
+
+        then:
+            thrown(IOException)
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of fabric-loom, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2016, 2017, 2018 FabricMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.fabricmc.loom.test.unit
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.zip.CRC32
+import java.util.zip.ZipFile
+
+import net.fabricmc.loom.util.ZipReprocessorUtil
+import spock.lang.Specification
+
+class ZipReprocessorUtilTest extends Specification {
+    static final long CONSTANT_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).timeInMillis
+    static final Map<String, byte[]> ENTRIES = [
+            "b/Two.txt": "two".getBytes(StandardCharsets.UTF_8),
+            "a/One.txt": "one".getBytes(StandardCharsets.UTF_8),
+            "Root.txt" : ("root" * 100).getBytes(StandardCharsets.UTF_8)
+    ]
+
+    def "written zip keeps the entry order and adds parent directories"() {
+        when:
+            def zip = Files.createTempDirectory("loom-zip").resolve("test.zip").toFile()
+            ZipReprocessorUtil.writeZip(zip, ENTRIES, false, true)
+
+        then:
+            names(zip) == ["b/", "b/Two.txt", "a/", "a/One.txt", "Root.txt"]
+            matchesEntries(zip)
+            times(zip).every { it != CONSTANT_TIME }
+    }
+
+    def "reprocessed zip is sorted with constant timestamps and the same contents"() {
+        when:
+            def zip = Files.createTempDirectory("loom-zip").resolve("test.zip").toFile()
+            ZipReprocessorUtil.writeZip(zip, ENTRIES, false, true)
+            ZipReprocessorUtil.reprocessZip(zip, true, false)
+
+        then:
+            names(zip) == ["Root.txt", "a/", "a/One.txt", "b/", "b/Two.txt"]
+            matchesEntries(zip)
+            times(zip).every { it == CONSTANT_TIME }
+            zip.parentFile.list() as List == ["test.zip"]
+    }
+
+    def "reproducible zip is written sorted with constant timestamps"() {
+        when:
+            def zip = Files.createTempDirectory("loom-zip").resolve("test.zip").toFile()
+            ZipReprocessorUtil.writeZip(zip, ENTRIES, true, false)
+
+        then:
+            names(zip) == ["Root.txt", "a/", "a/One.txt", "b/", "b/Two.txt"]
+            matchesEntries(zip)
+            times(zip).every { it == CONSTANT_TIME }
+    }
+
+    def "reprocessing without changes leaves the zip alone"() {
+        when:
+            def zip = Files.createTempDirectory("loom-zip").resolve("test.zip").toFile()
+            ZipReprocessorUtil.writeZip(zip, ENTRIES, false, true)
+            def before = zip.bytes
+            ZipReprocessorUtil.reprocessZip(zip, false, true)
+
+        then:
+            zip.bytes == before
+    }
+
+    static List<String> names(File file) {
+        new ZipFile(file).withCloseable { zip -> Collections.list(zip.entries())*.name }
+    }
+
+    static List<Long> times(File file) {
+        new ZipFile(file).withCloseable { zip -> Collections.list(zip.entries())*.time }
+    }
+
+    static boolean matchesEntries(File file) {
+        new ZipFile(file).withCloseable { zip ->
+            ENTRIES.every { name, bytes ->
+                def entry = zip.getEntry(name)
+                def crc = new CRC32()
+                crc.update(bytes)
+
+                entry.crc == crc.value && entry.size == bytes.length && zip.getInputStream(entry).bytes == bytes
+            }
+        }
+    }
+}